@@ -0,0 +1,214 @@
+package com.techpool.tech;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTPageMar;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTPageSz;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTSectPr;
+
+/**
+ * Synthetic input files for the benchmarks. The benchmark profile runs {@link #main} before
+ * JMH so every run measures the same corpus; benchmarks also call {@link #ensure} so they can
+ * be started from an IDE. Content is seeded, so regenerated files are identical.
+ */
+public final class BenchmarkCorpus {
+
+    public static final String DIRECTORY_PROPERTY = "benchmark.corpus";
+
+    // name, width, height of the generated photos
+    static final String[][] IMAGES = {
+            {"small", "640", "480"},
+            {"medium", "2048", "1536"},
+            {"large", "6000", "4000"},
+    };
+
+    private static final String LOREM = "Lorem ipsum dolor sit amet, consectetur adipiscing "
+            + "elit, sed do eiusmod tempor incididunt ut labore et dolore magna aliqua. ";
+
+    private BenchmarkCorpus() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = ensure(args.length > 0 ? Path.of(args[0]) : directory());
+        System.out.println("Benchmark corpus ready in " + directory.toAbsolutePath());
+    }
+
+    /** The corpus directory, from -Dbenchmark.corpus or target/benchmark-corpus. */
+    public static Path directory() {
+        return Path.of(System.getProperty(DIRECTORY_PROPERTY, "target/benchmark-corpus"));
+    }
+
+    /** Creates any corpus file that does not exist yet and returns the directory. */
+    public static Path ensure(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (String[] image : IMAGES) {
+            int width = Integer.parseInt(image[1]);
+            int height = Integer.parseInt(image[2]);
+            for (String format : new String[] {"jpg", "png"}) {
+                File file = directory.resolve(image[0] + "." + format).toFile();
+                if (!file.exists()) {
+                    ImageIO.write(photo(width, height, format.equals("png")), format, file);
+                }
+            }
+        }
+        createIfMissing(directory.resolve("document.pdf"), BenchmarkCorpus::writePdf);
+        createIfMissing(directory.resolve("document.docx"), BenchmarkCorpus::writeDocx);
+        createIfMissing(directory.resolve("sheet.xlsx"),
+                out -> writeWorkbook(new XSSFWorkbook(), out));
+        createIfMissing(directory.resolve("sheet.xls"),
+                out -> writeWorkbook(new HSSFWorkbook(), out));
+        createIfMissing(directory.resolve("data.csv"), BenchmarkCorpus::writeCsv);
+        return directory;
+    }
+
+    private interface Content {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private static void createIfMissing(Path file, Content content) throws IOException {
+        if (Files.exists(file)) {
+            return;
+        }
+        try (OutputStream out = new FileOutputStream(file.toFile())) {
+            content.write(out);
+        }
+    }
+
+    // Gradient with shapes and seeded noise, so JPEG and PNG sizes resemble real photos
+    // rather than flat fills
+    private static BufferedImage photo(int width, int height, boolean alpha) {
+        BufferedImage image = new BufferedImage(width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, new Color(40, 90, 160), width, height,
+                new Color(230, 180, 90)));
+        graphics.fillRect(0, 0, width, height);
+        Random random = new Random(width * 31L + height);
+        for (int i = 0; i < 60; i++) {
+            graphics.setColor(new Color(random.nextInt(256), random.nextInt(256),
+                    random.nextInt(256), 160));
+            graphics.fillOval(random.nextInt(width), random.nextInt(height),
+                    width / 8 + random.nextInt(width / 4), height / 8 + random.nextInt(height / 4));
+        }
+        graphics.dispose();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int noise = random.nextInt(17) - 8;
+                int rgb = image.getRGB(x, y);
+                int r = clamp(((rgb >> 16) & 0xFF) + noise);
+                int g = clamp(((rgb >> 8) & 0xFF) + noise);
+                int b = clamp((rgb & 0xFF) + noise);
+                image.setRGB(x, y, (rgb & 0xFF000000) | (r << 16) | (g << 8) | b);
+            }
+        }
+        return image;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+    private static void writePdf(OutputStream out) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int page = 1; page <= 10; page++) {
+                PDPage pdPage = new PDPage(PDRectangle.A4);
+                document.addPage(pdPage);
+                try (PDPageContentStream content = new PDPageContentStream(document, pdPage)) {
+                    content.setNonStrokingColor(new Color(200, 220, 240));
+                    content.addRect(50, 600, 495, 180);
+                    content.fill();
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA_BOLD, 20);
+                    content.newLineAtOffset(60, 750);
+                    content.showText("Benchmark page " + page);
+                    content.setFont(PDType1Font.HELVETICA, 10);
+                    for (int line = 0; line < 45; line++) {
+                        content.newLineAtOffset(0, -14);
+                        content.showText(LOREM.substring(0, 90));
+                    }
+                    content.endText();
+                }
+            }
+            document.save(out);
+        }
+    }
+
+    private static void writeDocx(OutputStream out) throws IOException {
+        try (XWPFDocument document = new XWPFDocument()) {
+            // The PDF converter behind renderDocxToImage needs a styles part and page setup
+            document.createStyles();
+            CTSectPr section = document.getDocument().getBody().addNewSectPr();
+            CTPageSz pageSize = section.addNewPgSz();
+            pageSize.setW(BigInteger.valueOf(12240));
+            pageSize.setH(BigInteger.valueOf(15840));
+            CTPageMar margins = section.addNewPgMar();
+            margins.setTop(BigInteger.valueOf(1440));
+            margins.setBottom(BigInteger.valueOf(1440));
+            margins.setLeft(BigInteger.valueOf(1440));
+            margins.setRight(BigInteger.valueOf(1440));
+            for (int i = 1; i <= 200; i++) {
+                XWPFParagraph paragraph = document.createParagraph();
+                XWPFRun run = paragraph.createRun();
+                if (i % 20 == 1) {
+                    run.setBold(true);
+                    run.setFontSize(16);
+                    run.setText("Section " + (i / 20 + 1));
+                } else {
+                    run.setText(i + ". " + LOREM + LOREM);
+                }
+            }
+            document.write(out);
+        }
+    }
+
+    private static void writeWorkbook(Workbook workbook, OutputStream out) throws IOException {
+        try (workbook) {
+            Sheet sheet = workbook.createSheet("Data");
+            for (int r = 0; r < 5000; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue("Item " + r);
+                row.createCell(1).setCellValue(r * 1.5);
+                row.createCell(2).setCellValue(r % 7 == 0 ? "weekly" : "daily");
+                row.createCell(3).setCellValue(r * 37 % 1000);
+            }
+            workbook.write(out);
+        }
+    }
+
+    private static void writeCsv(OutputStream out) throws IOException {
+        try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            writer.write("id,name,amount,category,note\n");
+            for (int r = 0; r < 100_000; r++) {
+                writer.write(r + ",Item " + r + "," + (r * 1.5) + "," + (r % 7) + ",\""
+                        + LOREM.substring(0, 40) + "\"\n");
+            }
+        }
+    }
+}
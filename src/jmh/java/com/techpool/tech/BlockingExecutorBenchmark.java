@@ -0,0 +1,89 @@
+package com.techpool.tech;
+
+import com.techpool.tech.utils.VirtualThreads;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Platform against virtual threads for the BLOCKING workload, using the default pool size and
+ * in-flight cap. Each task waits as an ffmpeg call does and then writes a small file. The
+ * virtual variant needs a Java 21 runtime and fails its setup otherwise.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BlockingExecutorBenchmark {
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    // Files per batch and how long each waits on its "subprocess"
+    @Param({"256"})
+    public int files;
+
+    @Param({"20"})
+    public int waitMillis;
+
+    private ThumbnailExecutors executors;
+    private Path directory;
+    private final AtomicLong counter = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        boolean virtual = mode.equals("virtual");
+        if (virtual && !VirtualThreads.isSupported()) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later");
+        }
+        executors = new ThumbnailExecutors(0, 256, 8, 256, 2, 64, virtual, 64);
+        directory = Files.createDirectories(BenchmarkCorpus.directory().resolve("blocking"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executors.shutdown();
+    }
+
+    @Benchmark
+    public void batch() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(files);
+        byte[] data = new byte[16 * 1024];
+        for (int i = 0; i < files; i++) {
+            Path target = directory.resolve("d" + (counter.incrementAndGet() % 64));
+            executors.execute(ThumbnailExecutors.Workload.BLOCKING, () -> {
+                try {
+                    Thread.sleep(waitMillis);
+                    Files.createDirectories(target);
+                    Files.write(target.resolve("thumb.jpg"), data);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+}
@@ -0,0 +1,49 @@
+package com.techpool.tech;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PDF thumbnails end to end, and both DOCX renderers: conversion through PDF and the direct
+ * first-page renderer used for the fast-render types.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DocumentThumbnailBenchmark {
+
+    /** A service with no fast-render types, so DOCX files are converted through PDF. */
+    public static class PdfConversionState extends ServiceState {
+        @Override
+        protected List<String> properties() {
+            return List.of("--thumbnail.document.fast-render-types=");
+        }
+    }
+
+    @Benchmark
+    public GenerationOutcome pdfThumbnail(ServiceState state) throws Exception {
+        return state.store(state.render(state.detect("document.pdf")));
+    }
+
+    @Benchmark
+    public BufferedImage renderDocxToImage(PdfConversionState state) {
+        return state.render(state.detect("document.docx")).image();
+    }
+
+    @Benchmark
+    public BufferedImage renderDocxFirstPage(ServiceState state) {
+        return state.render(state.detect("document.docx")).image();
+    }
+}
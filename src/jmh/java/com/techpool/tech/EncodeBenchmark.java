@@ -0,0 +1,59 @@
+package com.techpool.tech;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import net.coobird.thumbnailator.Thumbnails;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The output side on its own: resize to every output size, encode and atomic write from an
+ * already decoded image, and the in-memory encode of a finished thumbnail.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class EncodeBenchmark {
+
+    @Param({"jpg", "png", "webp"})
+    public String format;
+
+    private BufferedImage decoded;
+    private BufferedImage thumbnail;
+    private ThumbnailService.Rendered rendered;
+    private ThumbnailEncoder encoder;
+
+    @Setup(Level.Trial)
+    public void setUp(ServiceState state) throws Exception {
+        decoded = ImageIO.read(state.file("medium.jpg"));
+        thumbnail = Thumbnails.of(decoded).size(400, 600).asBufferedImage();
+        // As if the render stage had decoded it; the decoded size is never pooled
+        rendered = new ThumbnailService.Rendered(state.detect("medium.jpg"), decoded, format,
+                GenerationOutcome.SUCCESS);
+        encoder = state.context.getBean(ThumbnailEncoder.class);
+    }
+
+    @Benchmark
+    public GenerationOutcome resizeAndStore(ServiceState state) throws Exception {
+        return state.store(rendered);
+    }
+
+    @Benchmark
+    public byte[] encode() throws Exception {
+        return encoder.encode(thumbnail, format);
+    }
+}
@@ -0,0 +1,35 @@
+package com.techpool.tech;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Image path after detection: decode at thumbnail resolution, resize, encode and write. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ImageThumbnailBenchmark {
+
+    @Param({"small", "medium", "large"})
+    public String size;
+
+    // Source format; the thumbnail keeps it (JPEG for photos, PNG for graphics)
+    @Param({"jpg", "png"})
+    public String format;
+
+    @Benchmark
+    public GenerationOutcome imageThumbnail(ServiceState state) throws Exception {
+        return state.store(state.render(state.detect(size + "." + format)));
+    }
+}
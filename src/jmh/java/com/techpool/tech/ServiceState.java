@@ -0,0 +1,87 @@
+package com.techpool.tech;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * A fully wired ThumbnailService (no web server) plus the corpus directory. The benchmarks live
+ * in the service's package and drive its pipeline stages (detect, render, resize, store)
+ * directly, as {@link ThumbnailPipeline} does.
+ */
+@State(Scope.Benchmark)
+public class ServiceState {
+
+    public ConfigurableApplicationContext context;
+    public ThumbnailService service;
+    public Path corpus;
+    private final Map<String, ThumbnailService.Detected> detected = new ConcurrentHashMap<>();
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        corpus = BenchmarkCorpus.ensure(BenchmarkCorpus.directory());
+        List<String> args = new ArrayList<>(List.of("--logging.level.root=WARN",
+                "--thumbnail.incremental=false", "--spring.devtools.restart.enabled=false"));
+        args.addAll(properties());
+        context = new SpringApplicationBuilder(TechApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run(args.toArray(String[]::new));
+        service = context.getBean(ThumbnailService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    // Extra properties for states that need a differently configured service
+    protected List<String> properties() {
+        return List.of();
+    }
+
+    public File file(String name) {
+        return corpus.resolve(name).toFile();
+    }
+
+    /** The corpus file after the detect stage, detected once so benchmarks start after it. */
+    ThumbnailService.Detected detect(String name) {
+        return detected.computeIfAbsent(name, key -> {
+            ThumbnailService.Detected source = service.detect(file(key), true);
+            if (source.mimeType() == null) {
+                throw new IllegalStateException("Cannot detect the type of " + key);
+            }
+            return source;
+        });
+    }
+
+    /** Render stage; a placeholder would measure the wrong thing, so it fails instead. */
+    ThumbnailService.Rendered render(ThumbnailService.Detected source) {
+        ThumbnailService.Rendered rendered = service.render(source);
+        if (rendered.outcome() != GenerationOutcome.SUCCESS || rendered.image() == null) {
+            throw new IllegalStateException("Rendering fell back for " + source.file());
+        }
+        return rendered;
+    }
+
+    /** Resize and store stages: scales to every output size, encodes and writes. */
+    GenerationOutcome store(ThumbnailService.Rendered rendered) throws IOException {
+        GenerationOutcome outcome = service.store(service.resize(rendered));
+        if (outcome != GenerationOutcome.SUCCESS) {
+            throw new IllegalStateException("Storing failed for " + rendered.source().file());
+        }
+        return outcome;
+    }
+}
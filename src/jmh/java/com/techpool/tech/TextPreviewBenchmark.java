@@ -0,0 +1,45 @@
+package com.techpool.tech;
+
+import com.techpool.tech.utils.SpreadsheetPreviewReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Spreadsheet and CSV preview reads, and a CSV thumbnail with its drawn data preview. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TextPreviewBenchmark {
+
+    // Same number of rows the service shows in a preview
+    private static final int PREVIEW_LINES = 3;
+
+    @Benchmark
+    public List<String> readXlsxPreview(ServiceState state) throws Exception {
+        return SpreadsheetPreviewReader.readXlsx(state.file("sheet.xlsx"), PREVIEW_LINES);
+    }
+
+    @Benchmark
+    public List<String> readXlsPreview(ServiceState state) throws Exception {
+        return SpreadsheetPreviewReader.readXls(state.file("sheet.xls"), PREVIEW_LINES);
+    }
+
+    @Benchmark
+    public List<String> readCsvPreview(ServiceState state) throws Exception {
+        return SpreadsheetPreviewReader.readCsv(state.file("data.csv"), PREVIEW_LINES);
+    }
+
+    // Reads the rows and draws them on a pooled canvas, which the store stage gives back
+    @Benchmark
+    public GenerationOutcome csvThumbnail(ServiceState state) throws Exception {
+        return state.store(state.render(state.detect("data.csv")));
+    }
+}
@@ -0,0 +1,116 @@
+package com.techpool.tech;
+
+import com.techpool.tech.utils.JpegThumbnailFormat;
+import com.techpool.tech.utils.PngThumbnailFormat;
+import com.techpool.tech.utils.ThumbnailFormat;
+import com.techpool.tech.utils.WebpThumbnailFormat;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageOutputStream;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encode time and encoded size per thumbnail format, on a photo-like and a flat graphic
+ * thumbnail, without the service around it. The size is reported as the secondary
+ * {@code bytes} result next to the time per encode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ThumbnailFormatBenchmark {
+
+    @Param({"jpeg", "png", "webp", "webp-lossless"})
+    public String format;
+
+    @Param({"photo", "graphic"})
+    public String content;
+
+    private ThumbnailFormat writer;
+    private BufferedImage image;
+
+    /** Size of the last encode; every encode of the same input has the same size. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSize {
+        public long bytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        writer = switch (format) {
+            case "jpeg" -> new JpegThumbnailFormat(0.85f, false, false);
+            case "png" -> new PngThumbnailFormat();
+            case "webp" -> new WebpThumbnailFormat(false, 0.8f);
+            case "webp-lossless" -> new WebpThumbnailFormat(true, 0.8f);
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        };
+        image = content.equals("photo") ? photo() : graphic();
+    }
+
+    @Benchmark
+    public byte[] encode(EncodedSize size) throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(buffer)) {
+            writer.write(image, out);
+        }
+        size.bytes = buffer.size();
+        return buffer.toByteArray();
+    }
+
+    // A noisy gradient, which compresses like a photo
+    private static BufferedImage photo() {
+        Random random = new Random(42);
+        BufferedImage photo = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = photo.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, new Color(30, 90, 160), 400, 300,
+                new Color(220, 180, 90)));
+        g.fillRect(0, 0, 400, 300);
+        g.dispose();
+        for (int y = 0; y < 300; y++) {
+            for (int x = 0; x < 400; x++) {
+                int noise = random.nextInt(24) - 12;
+                int rgb = photo.getRGB(x, y);
+                int r = Math.max(0, Math.min(255, ((rgb >> 16) & 0xFF) + noise));
+                int gr = Math.max(0, Math.min(255, ((rgb >> 8) & 0xFF) + noise));
+                int b = Math.max(0, Math.min(255, (rgb & 0xFF) + noise));
+                photo.setRGB(x, y, (r << 16) | (gr << 8) | b);
+            }
+        }
+        return photo;
+    }
+
+    // Dark text on white, like a document preview
+    private static BufferedImage graphic() {
+        BufferedImage graphic = new BufferedImage(400, 600, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = graphic.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, 400, 600);
+        g.setColor(Color.DARK_GRAY);
+        for (int y = 20; y < 600; y += 18) {
+            g.drawString("Line " + y + " of the document preview text", 10, y);
+        }
+        g.dispose();
+        return graphic;
+    }
+}
@@ -0,0 +1,242 @@
+package com.techpool.tech;
+
+import com.techpool.tech.utils.FileFingerprint;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Enumerates the regular files below a directory for generation. Directories are listed in
+ * parallel on a few scan threads, and each entry's attributes are read once while listing, so
+ * later stages need no further stat calls on slow (network) file systems. Hidden entries, names
+ * outside the include glob and anything the caller's filter rejects are dropped before queueing.
+ * Accepted files go through a bounded queue to the scanning thread, which hands them on while
+ * listing continues. The listing threads are shared by all scans, so a listing that finds its
+ * queue full does not wait on it: it hands the rest of its directory back to the pool behind
+ * the other scans' directories, and a slow consumer cannot starve concurrent scans.
+ *
+ * <p>Symbolic links to files are followed, links to directories are not, so cycles cannot occur.
+ */
+@Component
+public class DirectoryScanner {
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryScanner.class);
+
+    private final ThreadPoolExecutor listers;
+    // Null when every name is included
+    private final PathMatcher include;
+    private final boolean skipHidden;
+    private final int queueCapacity;
+
+    /** A regular file found by a scan, with the attributes read while listing it. */
+    public record Entry(Path path, BasicFileAttributes attributes) {
+        public FileFingerprint fingerprint() {
+            return new FileFingerprint(attributes.size(),
+                    attributes.lastModifiedTime().toMillis(), null);
+        }
+    }
+
+    // Queued after the last directory is listed, unless the queue is full at that point
+    private static final Entry END = new Entry(null, null);
+
+    public DirectoryScanner(@Value("${thumbnail.scan.threads:4}") int threads,
+            @Value("${thumbnail.scan.include:}") String include,
+            @Value("${thumbnail.scan.skip-hidden:true}") boolean skipHidden,
+            @Value("${thumbnail.scan.queue-capacity:256}") int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        // Unbounded: one small task per directory waiting to be listed
+        this.listers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "thumb-scan-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.include = include.isBlank() ? null
+                : FileSystems.getDefault().getPathMatcher("glob:" + include.trim());
+        this.skipHidden = skipHidden;
+        this.queueCapacity = queueCapacity;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        listers.shutdownNow();
+    }
+
+    /**
+     * Lists every regular file below root that passes the filters and hands it to consumer on
+     * the calling thread, returning once the whole tree is listed and consumed or cancelled
+     * returns true. Filter runs on the listing threads.
+     */
+    public void scan(Path root, Predicate<Entry> filter, Consumer<Entry> consumer,
+            BooleanSupplier cancelled) {
+        Scan scan = new Scan(filter);
+        scan.fork(root);
+        try {
+            while (!cancelled.getAsBoolean()) {
+                Entry entry = scan.queue.poll(100, TimeUnit.MILLISECONDS);
+                if (entry == END || (entry == null && scan.listed && scan.queue.isEmpty())) {
+                    return;
+                }
+                if (entry != null) {
+                    consumer.accept(entry);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Makes listings still holding entries give up
+            scan.stopped = true;
+        }
+    }
+
+    private final class Scan {
+        final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(queueCapacity);
+        final Predicate<Entry> filter;
+        // Directories forked but not yet fully listed
+        final AtomicInteger pending = new AtomicInteger();
+        volatile boolean listed;
+        volatile boolean stopped;
+
+        Scan(Predicate<Entry> filter) {
+            this.filter = filter;
+        }
+
+        void fork(Path dir) {
+            pending.incrementAndGet();
+            try {
+                listers.execute(() -> list(dir));
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+                stopped = true;
+                done();
+            }
+        }
+
+        void list(Path dir) {
+            DirectoryStream<Path> entries;
+            try {
+                entries = Files.newDirectoryStream(dir);
+            } catch (IOException e) {
+                logger.warn("Cannot list directory {}: {}", dir, e.getMessage());
+                done();
+                return;
+            }
+            resume(dir, entries, entries.iterator(), null);
+        }
+
+        // Lists the rest of a directory, starting with an entry a full queue turned away
+        void resume(Path dir, DirectoryStream<Path> entries, Iterator<Path> iterator,
+                Entry waiting) {
+            boolean yielded = false;
+            try {
+                Entry next = waiting;
+                while (!stopped && (next != null || iterator.hasNext())) {
+                    Entry entry = next != null ? next : visit(iterator.next());
+                    next = null;
+                    if (entry != null && !offer(entry)) {
+                        yielded = requeue(() -> resume(dir, entries, iterator, entry));
+                        return;
+                    }
+                }
+            } catch (DirectoryIteratorException e) {
+                logger.warn("Cannot list directory {}: {}", dir, e.getMessage());
+            } finally {
+                if (!yielded) {
+                    close(entries);
+                    done();
+                }
+            }
+        }
+
+        // Null when the path is a directory, which is forked, or is filtered out
+        Entry visit(Path path) {
+            if (skipHidden && path.getFileName().toString().startsWith(".")) {
+                return null;
+            }
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class,
+                        LinkOption.NOFOLLOW_LINKS);
+                if (attributes.isSymbolicLink()) {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    if (attributes.isDirectory()) {
+                        return null;
+                    }
+                }
+            } catch (IOException e) {
+                logger.debug("Cannot read attributes of {}: {}", path, e.getMessage());
+                return null;
+            }
+            if (attributes.isDirectory()) {
+                fork(path);
+            } else if (attributes.isRegularFile()
+                    && (include == null || include.matches(path.getFileName()))) {
+                Entry entry = new Entry(path, attributes);
+                if (filter.test(entry)) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        // False when the pool is shutting down and the task was not taken
+        boolean requeue(Runnable rest) {
+            try {
+                listers.execute(rest);
+                return true;
+            } catch (RejectedExecutionException e) {
+                stopped = true;
+                return false;
+            }
+        }
+
+        void done() {
+            if (pending.decrementAndGet() == 0) {
+                listed = true;
+                // Without waiting; the scanning thread also stops on listed and an empty queue
+                queue.offer(END);
+            }
+        }
+
+        // False when the queue stayed full for a short wait
+        boolean offer(Entry entry) {
+            try {
+                return stopped || queue.offer(entry, 100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stopped = true;
+                return true;
+            }
+        }
+
+        void close(DirectoryStream<Path> entries) {
+            try {
+                entries.close();
+            } catch (IOException e) {
+                logger.debug("Cannot close listing: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.techpool.tech;
+
+/** Result of processing a single source file. */
+public enum GenerationOutcome {
+    // A real preview was generated
+    SUCCESS,
+    // Preview generation failed and the placeholder thumbnail was written instead
+    FALLBACK,
+    // Not even the placeholder could be written
+    FAILURE,
+    // Not processed: already up to date, rejected by validation, or job cancelled
+    SKIPPED
+}
@@ -0,0 +1,100 @@
+package com.techpool.tech;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Admission control for decoding and rendering, in place of a cap on file size. Each job
+ * reserves the heap its source is estimated to need from the file header (pixel dimensions for
+ * images, page size and image sizes for PDFs) before allocating it and gives it back when done,
+ * so workers run at full concurrency while the sum of their peaks stays within the budget. Jobs
+ * that do not fit wait; a job estimated to need more than the whole budget is refused instead
+ * of being allowed to exhaust the heap. Videos reserve nothing: ffmpeg decodes them in its own
+ * process and hands back frames at thumbnail size.
+ *
+ * <p>Reservations are counted in KiB permits of a fair semaphore, so a large job waiting at the
+ * head is not overtaken indefinitely by small ones.
+ */
+@Component
+public class MemoryBudget {
+    private static final Logger logger = LoggerFactory.getLogger(MemoryBudget.class);
+
+    private static final long KIB = 1024;
+
+    /** Thrown for a job that needs more than the whole budget; retrying cannot help. */
+    public static final class OverBudgetException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        OverBudgetException(String message) {
+            super(message);
+        }
+    }
+
+    /** A reservation, released by {@link #close()}. */
+    public final class Lease implements AutoCloseable {
+        private final int permits;
+        private boolean released;
+
+        private Lease(int permits) {
+            this.permits = permits;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                semaphore.release(permits);
+            }
+        }
+    }
+
+    private final int totalPermits;
+    private final Semaphore semaphore;
+
+    // 0 = a quarter of the maximum heap
+    public MemoryBudget(@Value("${thumbnail.admission.memory-budget-mb:0}") long budgetMb) {
+        long bytes = budgetMb > 0 ? budgetMb * KIB * KIB : Runtime.getRuntime().maxMemory() / 4;
+        this.totalPermits = (int) Math.min(Integer.MAX_VALUE, Math.max(1, bytes / KIB));
+        this.semaphore = new Semaphore(totalPermits, true);
+        logger.info("Decode memory budget: {} MB", totalPermits / KIB);
+    }
+
+    /**
+     * Blocks until the estimated bytes are free in the budget and reserves them.
+     *
+     * @throws OverBudgetException if the estimate exceeds the whole budget
+     * @throws IOException if interrupted while waiting
+     */
+    public Lease acquire(long bytes, String what) throws IOException {
+        long permits = Math.max(1, (bytes + KIB - 1) / KIB);
+        if (permits > totalPermits) {
+            throw new OverBudgetException(what + " needs about " + (permits + KIB - 1) / KIB
+                    + " MB to render, more than the " + totalPermits / KIB + " MB budget");
+        }
+        try {
+            semaphore.acquire((int) permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for memory to render " + what, e);
+        }
+        return new Lease((int) permits);
+    }
+
+    public long totalBytes() {
+        return totalPermits * KIB;
+    }
+
+    public long reservedBytes() {
+        return (totalPermits - semaphore.availablePermits()) * KIB;
+    }
+
+    /** Jobs waiting for memory to be released. */
+    public int waiting() {
+        return semaphore.getQueueLength();
+    }
+}
@@ -0,0 +1,112 @@
+package com.techpool.tech;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Loads PDFs with bounded heap use and renders page 0 directly at thumbnail resolution. Parsed
+ * streams beyond the main-memory threshold spill to a scratch file, and a semaphore caps how
+ * many pages PDFBox rasterises at once so a batch of scanned documents cannot exhaust the heap.
+ * Each render also reserves its estimated memory in the {@link MemoryBudget}: the page bitmap
+ * at the render scale plus the images drawn directly on the page at full resolution, as
+ * DCT-encoded scans are decoded whole before being subsampled.
+ */
+@Component
+public class PdfPageRenderer {
+
+    private final MemoryUsageSetting memoryUsage;
+    private final int maxConcurrentRenders;
+    private final Semaphore permits;
+    private final MemoryBudget memoryBudget;
+
+    public PdfPageRenderer(
+            @Value("${thumbnail.pdf.max-concurrent-renders:2}") int maxConcurrentRenders,
+            @Value("${thumbnail.pdf.max-main-memory-mb:16}") long maxMainMemoryMb,
+            MemoryBudget memoryBudget) {
+        this.memoryUsage = MemoryUsageSetting.setupMixed(maxMainMemoryMb * 1024 * 1024);
+        this.maxConcurrentRenders = maxConcurrentRenders;
+        this.permits = new Semaphore(maxConcurrentRenders, true);
+        this.memoryBudget = memoryBudget;
+    }
+
+    public PDDocument load(File pdfFile) throws IOException {
+        return PDDocument.load(pdfFile, memoryUsage);
+    }
+
+    /**
+     * Renders the first page scaled to fit within width x height. The scale comes from the
+     * crop box (swapped for rotated pages), so no oversized bitmap is produced and shrunk later.
+     */
+    public BufferedImage renderFirstPage(PDDocument document, int width, int height)
+            throws IOException {
+        PDPage page = document.getPage(0);
+        PDRectangle box = page.getCropBox();
+        boolean rotated = page.getRotation() % 180 != 0;
+        float pageWidth = rotated ? box.getHeight() : box.getWidth();
+        float pageHeight = rotated ? box.getWidth() : box.getHeight();
+        float scale = Math.min(width / pageWidth, height / pageHeight);
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for a PDF render slot", e);
+        }
+        MemoryBudget.Lease lease = null;
+        try {
+            long bitmap =
+                    (long) Math.ceil(pageWidth * scale) * (long) Math.ceil(pageHeight * scale);
+            lease = memoryBudget.acquire(bitmap * 4 + imageBytes(page), "PDF page");
+            PDFRenderer renderer = new PDFRenderer(document);
+            // Large embedded scans are decoded subsampled to roughly the output resolution
+            renderer.setSubsamplingAllowed(true);
+            return renderer.renderImage(0, scale, ImageType.RGB);
+        } finally {
+            if (lease != null) {
+                lease.close();
+            }
+            permits.release();
+        }
+    }
+
+    // Full-resolution size of the image XObjects in the page's resources, read from their
+    // dictionaries without decoding them; images nested in forms are not counted
+    static long imageBytes(PDPage page) {
+        PDResources resources = page.getResources();
+        COSBase xobjects = resources != null
+                ? resources.getCOSObject().getDictionaryObject(COSName.XOBJECT) : null;
+        if (!(xobjects instanceof COSDictionary dictionary)) {
+            return 0;
+        }
+        long bytes = 0;
+        for (COSName name : dictionary.keySet()) {
+            if (dictionary.getDictionaryObject(name) instanceof COSStream stream
+                    && COSName.IMAGE.equals(stream.getCOSName(COSName.SUBTYPE))) {
+                bytes += (long) Math.max(0, stream.getInt(COSName.WIDTH))
+                        * Math.max(0, stream.getInt(COSName.HEIGHT)) * 4;
+            }
+        }
+        return bytes;
+    }
+
+    /** Number of pages currently being rasterised. */
+    public int inFlight() {
+        return maxConcurrentRenders - permits.availablePermits();
+    }
+}
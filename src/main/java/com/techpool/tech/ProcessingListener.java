@@ -0,0 +1,24 @@
+package com.techpool.tech;
+
+import java.io.File;
+
+/**
+ * Receives progress callbacks from {@link ThumbnailService#processPath(File, ProcessingListener)}.
+ * Callbacks arrive concurrently from the worker pools.
+ */
+public interface ProcessingListener {
+
+    ProcessingListener NONE = new ProcessingListener() {
+    };
+
+    default void onDiscovered(File file) {
+    }
+
+    default void onCompleted(File file, GenerationOutcome outcome) {
+    }
+
+    // Checked before each directory and file; once true, remaining work is skipped
+    default boolean isCancelled() {
+        return false;
+    }
+}
@@ -0,0 +1,40 @@
+package com.techpool.tech;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** A named thumbnail size, written beside the primary thumbnail with "_" + name as suffix. */
+public record Rendition(String name, int width, int height) {
+
+    private static final Pattern SPEC = Pattern.compile("([A-Za-z0-9-]+):(\\d+)x(\\d+)");
+
+    // Largest box first, the order in which renditions are downscaled from one another
+    static final Comparator<Rendition> LARGEST_FIRST =
+            Comparator.comparingLong((Rendition r) -> (long) r.width() * r.height()).reversed();
+
+    /** Filename suffix distinguishing this rendition; empty for the primary thumbnail. */
+    public String suffix() {
+        return name.isEmpty() ? "" : "_" + name;
+    }
+
+    /** Parses a comma-separated list such as "grid:200x300,detail:800x1200". */
+    public static List<Rendition> parse(String spec) {
+        List<Rendition> renditions = new ArrayList<>();
+        if (spec == null || spec.isBlank()) {
+            return renditions;
+        }
+        for (String entry : spec.split(",")) {
+            Matcher matcher = SPEC.matcher(entry.trim());
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Invalid rendition '" + entry
+                        + "', expected name:WIDTHxHEIGHT");
+            }
+            renditions.add(new Rendition(matcher.group(1), Integer.parseInt(matcher.group(2)),
+                    Integer.parseInt(matcher.group(3))));
+        }
+        return renditions;
+    }
+}
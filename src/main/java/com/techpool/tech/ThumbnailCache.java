@@ -0,0 +1,280 @@
+package com.techpool.tech;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.techpool.tech.utils.FileFingerprint;
+import com.techpool.tech.utils.SingleFlight;
+import com.techpool.tech.utils.ThumbnailStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Tracks which source files already have an up-to-date thumbnail. Entries are keyed by absolute
+ * path and validated against the file's size and modification time (plus an optional content
+ * hash). Every directory has a small append-only index file so the state survives restarts. It
+ * sits next to the sources unless the {@link ThumbnailStore} keeps it elsewhere.
+ */
+@Component
+public class ThumbnailCache {
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailCache.class);
+
+    public static final String INDEX_FILE_NAME = ".thumb_index";
+    private static final String NO_HASH = "-";
+    // In the size column: the entry of that name was dropped
+    private static final String REMOVED = "-";
+
+    private final Cache<String, FileFingerprint> fingerprints;
+    private final Cache<String, Map<String, FileFingerprint>> directoryIndexes;
+    private final ThumbnailStore thumbnailStore;
+    // Lookups that found an entry recorded for an older version of the file
+    private final LongAdder staleHits = new LongAdder();
+    // Generations currently running, keyed by absolute path of the source
+    private final SingleFlight<String, GenerationOutcome> inFlight = new SingleFlight<>();
+
+    @Value("${thumbnail.cache.content-hash:false}")
+    private boolean useContentHash;
+
+    public ThumbnailCache(Cache<String, FileFingerprint> thumbnailFingerprintCache,
+            Cache<String, Map<String, FileFingerprint>> thumbnailIndexCache,
+            ThumbnailStore thumbnailStore) {
+        this.fingerprints = thumbnailFingerprintCache;
+        this.directoryIndexes = thumbnailIndexCache;
+        this.thumbnailStore = thumbnailStore;
+    }
+
+    public enum Freshness {
+        // Recorded for the current content of the file
+        CURRENT,
+        // Recorded for an older version of the file
+        STALE,
+        // Never recorded
+        UNKNOWN
+    }
+
+    /**
+     * Checks whether the thumbnail recorded for this file was generated from the same content. A
+     * matching size and mtime is enough; when content hashing is enabled a file that was only
+     * touched (same size, new mtime, same bytes) is also treated as current.
+     */
+    public Freshness check(File file) {
+        return check(file, FileFingerprint.of(file));
+    }
+
+    /** {@link #check(File)} against size and mtime the caller has already read. */
+    public Freshness check(File file, FileFingerprint current) {
+        FileFingerprint cached = recorded(file);
+        if (cached == null) {
+            return Freshness.UNKNOWN;
+        }
+        if (cached.sameMetadata(current)) {
+            return Freshness.CURRENT;
+        }
+        if (useContentHash && cached.contentHash() != null && cached.size() == current.size()) {
+            try {
+                String hash = FileFingerprint.sha256(file);
+                if (hash.equals(cached.contentHash())) {
+                    store(file, current.withContentHash(hash));
+                    return Freshness.CURRENT;
+                }
+            } catch (IOException e) {
+                logger.debug("Could not hash {}", file.getAbsolutePath(), e);
+            }
+        }
+        staleHits.increment();
+        return Freshness.STALE;
+    }
+
+    /** The fingerprint the file's thumbnail was recorded for, or null when there is none. */
+    public FileFingerprint recorded(File file) {
+        return fingerprints.get(file.getAbsolutePath(),
+                key -> indexFor(file.getParentFile()).get(file.getName()));
+    }
+
+    /** Records that a thumbnail was just generated for the current state of the file. */
+    public void record(File file) {
+        record(file, FileFingerprint.of(file));
+    }
+
+    /**
+     * Records that a thumbnail was generated from the file as it was when readFrom was taken,
+     * before generation read it. A file modified meanwhile no longer matches and is regenerated
+     * on the next check; it is also not hashed, as its content is no longer what was rendered.
+     */
+    public void record(File file, FileFingerprint readFrom) {
+        FileFingerprint fingerprint = readFrom;
+        if (useContentHash && readFrom.sameMetadata(FileFingerprint.of(file))) {
+            try {
+                fingerprint = fingerprint.withContentHash(FileFingerprint.sha256(file));
+            } catch (IOException e) {
+                logger.debug("Could not hash {}", file.getAbsolutePath(), e);
+            }
+        }
+        store(file, fingerprint);
+    }
+
+    /**
+     * Runs the generation for a file unless one is already in flight for it, in which case the
+     * caller waits and gets that generation's outcome. Generations record their result here, so
+     * callers arriving afterwards find the file up to date instead.
+     */
+    public GenerationOutcome generateOnce(File file, Supplier<GenerationOutcome> generation) {
+        return inFlight.run(file.getAbsolutePath(), generation);
+    }
+
+    /** Asynchronous {@link #generateOnce}, for generations that run through a pipeline. */
+    public CompletableFuture<GenerationOutcome> generateOnceAsync(File file,
+            Supplier<CompletableFuture<GenerationOutcome>> generation) {
+        return inFlight.runAsync(file.getAbsolutePath(), generation);
+    }
+
+    /** Names of the files in dir that thumbnails have been recorded for. */
+    public Set<String> recordedSources(File dir) {
+        return Set.copyOf(indexFor(dir).keySet());
+    }
+
+    /**
+     * Forgets the file, in memory and in its directory's index, so a file recreated later with
+     * the same size and mtime (a restore, {@code cp -p}) is generated again.
+     */
+    public void invalidate(File file) {
+        fingerprints.invalidate(file.getAbsolutePath());
+        Map<String, FileFingerprint> index = indexFor(file.getParentFile());
+        synchronized (index) {
+            if (index.remove(file.getName()) != null) {
+                appendLine(file.getParentFile().toPath(),
+                        REMOVED + "\t0\t" + NO_HASH + "\t" + file.getName() + "\n");
+            }
+        }
+    }
+
+    public Stats stats() {
+        CacheStats stats = fingerprints.stats();
+        return new Stats(stats.hitCount(), stats.missCount(), staleHits.sum(), stats.hitRate(),
+                stats.evictionCount(), fingerprints.estimatedSize(), inFlight.coalescedCount(),
+                inFlight.inFlightCount());
+    }
+
+    // coalesced counts generations saved by joining one already in flight
+    public record Stats(long hits, long misses, long stale, double hitRate, long evictions,
+            long size, long coalesced, int inFlight) {
+    }
+
+    private void store(File file, FileFingerprint fingerprint) {
+        fingerprints.put(file.getAbsolutePath(), fingerprint);
+        Map<String, FileFingerprint> index = indexFor(file.getParentFile());
+        synchronized (index) {
+            index.put(file.getName(), fingerprint);
+            appendLine(file.getParentFile().toPath(), formatLine(file.getName(), fingerprint));
+        }
+    }
+
+    private Map<String, FileFingerprint> indexFor(File dir) {
+        return directoryIndexes.get(directoryKey(dir), key -> loadIndex(Path.of(key)));
+    }
+
+    private String directoryKey(File dir) {
+        return dir.getAbsolutePath();
+    }
+
+    private Path indexFile(Path dir) {
+        Path stored = thumbnailStore.indexFile(dir.toFile());
+        return stored != null ? stored : dir.resolve(INDEX_FILE_NAME);
+    }
+
+    private Map<String, FileFingerprint> loadIndex(Path dir) {
+        Map<String, FileFingerprint> index = new ConcurrentHashMap<>();
+        Path indexFile = indexFile(dir);
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(indexFile, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return index;
+        } catch (IOException e) {
+            logger.warn("Could not read thumbnail index {}", indexFile, e);
+            return index;
+        }
+        // Later lines win; the file is append-only
+        for (String line : lines) {
+            String[] parts = line.split("\t", 4);
+            if (parts.length < 4) {
+                continue;
+            }
+            if (REMOVED.equals(parts[0])) {
+                index.remove(parts[3]);
+                continue;
+            }
+            try {
+                String hash = NO_HASH.equals(parts[2]) ? null : parts[2];
+                index.put(parts[3], new FileFingerprint(Long.parseLong(parts[0]),
+                        Long.parseLong(parts[1]), hash));
+            } catch (NumberFormatException e) {
+                logger.debug("Skipping malformed index line in {}", indexFile);
+            }
+        }
+        if (lines.size() > 2 * index.size() + 16) {
+            compactIndex(indexFile, index);
+        }
+        return index;
+    }
+
+    private void appendLine(Path dir, String line) {
+        Path indexFile = indexFile(dir);
+        try {
+            // Only the store's index directories may be missing
+            Files.createDirectories(indexFile.getParent());
+        } catch (IOException e) {
+            logger.debug("Could not create thumbnail index directory for {}", dir, e);
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(line);
+        } catch (IOException e) {
+            // Read-only share: keep the entry in memory only
+            logger.debug("Could not update thumbnail index in {}", dir, e);
+        }
+    }
+
+    private void compactIndex(Path indexFile, Map<String, FileFingerprint> index) {
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, FileFingerprint> entry : index.entrySet()) {
+                writer.write(formatLine(entry.getKey(), entry.getValue()));
+            }
+        } catch (IOException e) {
+            logger.debug("Could not compact thumbnail index {}", indexFile, e);
+            return;
+        }
+        try {
+            Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.debug("Could not replace thumbnail index {}", indexFile, e);
+        }
+    }
+
+    private String formatLine(String name, FileFingerprint fingerprint) {
+        String hash = fingerprint.contentHash() != null ? fingerprint.contentHash() : NO_HASH;
+        // Name goes last so it may contain tabs
+        return fingerprint.size() + "\t" + fingerprint.lastModified() + "\t" + hash + "\t" + name
+                + "\n";
+    }
+}
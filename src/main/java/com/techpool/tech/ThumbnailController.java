@@ -1,35 +1,349 @@
 package com.techpool.tech;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.techpool.tech.utils.FileFingerprint;
+import com.techpool.tech.utils.StoredThumbnail;
+import com.techpool.tech.utils.ThumbnailFormat;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
 import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/thumbnail")
 public class ThumbnailController {
+    private static final MediaType WEBP = MediaType.parseMediaType("image/webp");
+    // Request attributes of Tomcat's sendfile support (see its DefaultServlet)
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
 
     @Autowired
     private ThumbnailService thumbnailService;
 
+    @Autowired
+    private ThumbnailCache thumbnailCache;
+
+    @Autowired
+    private ThumbnailJobService jobService;
+
+    @Autowired
+    private ThumbnailEncoder thumbnailEncoder;
+
+    @Autowired
+    private ThumbnailPipeline pipeline;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${thumbnail.batch.max-files:10000}")
+    private int batchMaxFiles;
+
+    // Smaller files are cheaper to copy than to hand to sendfile
+    @Value("${thumbnail.http.sendfile-min-bytes:49152}")
+    private long sendfileMinBytes;
+
+    // Empty: any path may be served
+    @Value("${thumbnail.allowed-base-path:}")
+    private String allowedBasePath;
+
+    // Canonical form of allowedBasePath, null when unrestricted
+    private Path allowedBase;
+
+    @PostConstruct
+    void initAllowedBase() throws IOException {
+        allowedBase = allowedBasePath.isBlank() ? null
+                : new File(allowedBasePath.trim()).getCanonicalFile().toPath();
+    }
+
+    /**
+     * Serves the thumbnail of a single file, generating it on a miss. {@code size} selects a
+     * configured rendition. Responses carry a strong ETag (If-None-Match gets 304), Range
+     * requests are answered from the file, and full responses above the sendfile threshold are
+     * handed to Tomcat's sendfile so the bytes never pass through the JVM heap. Paths outside
+     * {@code thumbnail.allowed-base-path} get 403 here and from every other endpoint.
+     */
+    @GetMapping
+    public ResponseEntity<Resource> thumbnail(@RequestParam String path,
+            @RequestParam(required = false) String size,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            ServletWebRequest webRequest) {
+        File source = resolveAllowedPath(path);
+        if (source == null) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        StoredThumbnail thumbnail;
+        try {
+            thumbnail = thumbnailService.thumbnailFor(source, size);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (thumbnail == null) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            ThumbnailFormat format = negotiateFormat(accept, thumbnail);
+            StoredThumbnail body =
+                    thumbnailService.thumbnailVariant(source, size, thumbnail, format);
+            // Tagged by the source version the thumbnail was generated from, plus size and
+            // format, so the tag changes whenever the source does
+            FileFingerprint generatedFrom = thumbnailCache.recorded(source);
+            String etag = (generatedFrom != null ? generatedFrom : FileFingerprint.of(source))
+                    .etag((size == null ? "" : size) + "." + format.name());
+            webRequest.getResponse().setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            if (webRequest.checkNotModified(etag)) {
+                // 304 status and ETag are already set on the response
+                return null;
+            }
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(format.mediaType())).eTag(etag)
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes");
+            HttpServletRequest request = webRequest.getRequest();
+            if (request.getHeader(HttpHeaders.RANGE) == null
+                    && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))
+                    && body.length() >= sendfileMinBytes) {
+                // Tomcat writes the file region to the socket itself once the headers are
+                // committed; packed stores serve a slice of a segment file the same way
+                request.setAttribute(SENDFILE_FILENAME, body.file().toFile().getCanonicalPath());
+                request.setAttribute(SENDFILE_START, body.offset());
+                request.setAttribute(SENDFILE_END, body.offset() + body.length());
+                return response.contentLength(body.length()).build();
+            }
+            // Spring turns a Range request on a Resource body into a 206 with the regions
+            return response.body(body.isWholeFile() ? new FileSystemResource(body.file())
+                    : new ByteArrayResource(body.read()));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @PostMapping("/generate")
     public ResponseEntity<String> generate(@RequestParam String path) {
+        File input = resolveAllowedPath(path);
+        if (input == null) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
         try {
-            // Decode URL and handle spaces properly
-            String decodedPath = URLDecoder.decode(path, StandardCharsets.UTF_8);
-            // Convert to Windows-style path if needed
-            decodedPath = decodedPath.replace('/', File.separatorChar);
-
-            File input = new File(decodedPath);
             thumbnailService.processPath(input);
             return ResponseEntity.ok("Thumbnails generated successfully.");
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body("Error: " + e.getMessage());
         }
     }
+
+    /**
+     * Generates thumbnails for an explicit list of source files, sent as a JSON array or as
+     * NDJSON (one entry per line). Entries are path strings or objects with a "path" field.
+     * Files go through the staged pipeline, and an NDJSON line per file is streamed back as
+     * soon as that file finishes, in completion order.
+     */
+    @PostMapping(value = "/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> batch(@RequestBody String body,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType) {
+        List<String> paths;
+        try {
+            paths = parseBatch(body, MediaType.APPLICATION_NDJSON.includes(contentType));
+        } catch (IOException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (paths.size() > batchMaxFiles) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> streamBatch(paths, out));
+    }
+
+    /** One line of a batch response; error is only set for entries that were not processed. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record BatchResult(String path, GenerationOutcome outcome, long millis, String error) {
+    }
+
+    private List<String> parseBatch(String body, boolean ndjson) throws IOException {
+        List<JsonNode> entries = new ArrayList<>();
+        if (ndjson) {
+            for (String line : body.split("\r?\n")) {
+                if (!line.isBlank()) {
+                    entries.add(objectMapper.readTree(line));
+                }
+            }
+        } else {
+            JsonNode array = objectMapper.readTree(body);
+            if (array == null || !array.isArray()) {
+                throw new IllegalArgumentException("Expected a JSON array");
+            }
+            array.forEach(entries::add);
+        }
+        List<String> paths = new ArrayList<>(entries.size());
+        for (JsonNode entry : entries) {
+            JsonNode path = entry.isObject() ? entry.get("path") : entry;
+            if (path == null || !path.isTextual()) {
+                throw new IllegalArgumentException("Entry without a path: " + entry);
+            }
+            paths.add(path.asText());
+        }
+        return paths;
+    }
+
+    // Submission blocks while the pipeline is full; results finished meanwhile are written
+    // between submissions so the client sees progress from the first file on
+    private void streamBatch(List<String> paths, OutputStream out) throws IOException {
+        BlockingQueue<BatchResult> finished = new LinkedBlockingQueue<>();
+        int written = 0;
+        for (String path : paths) {
+            File file = resolveAllowedPath(path);
+            if (file == null) {
+                finished.add(new BatchResult(path, GenerationOutcome.SKIPPED, 0,
+                        "outside the allowed base path"));
+            } else if (!file.isFile() || thumbnailService.isGeneratedFile(file)) {
+                finished.add(new BatchResult(path, GenerationOutcome.SKIPPED, 0,
+                        "not a source file"));
+            } else {
+                long start = System.nanoTime();
+                pipeline.submit(file).whenComplete((outcome, error) -> finished.add(
+                        new BatchResult(path, error == null ? outcome : GenerationOutcome.FAILURE,
+                                (System.nanoTime() - start) / 1_000_000,
+                                error == null ? null : error.getMessage())));
+            }
+            written += writeFinished(finished, out);
+        }
+        try {
+            while (written < paths.size()) {
+                writeResult(finished.take(), out);
+                written += 1 + writeFinished(finished, out);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Batch interrupted");
+        }
+    }
+
+    private int writeFinished(BlockingQueue<BatchResult> finished, OutputStream out)
+            throws IOException {
+        int count = 0;
+        for (BatchResult result; (result = finished.poll()) != null; count++) {
+            writeResult(result, out);
+        }
+        if (count > 0) {
+            out.flush();
+        }
+        return count;
+    }
+
+    private void writeResult(BatchResult result, OutputStream out) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(result));
+        out.write('\n');
+    }
+
+    @PostMapping("/jobs")
+    public ResponseEntity<ThumbnailJob.Status> submitJob(@RequestParam String path) {
+        File root = resolveAllowedPath(path);
+        if (root == null) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            ThumbnailJob job = jobService.submit(root);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/thumbnail/jobs/" + job.getId()))
+                    .body(job.snapshot());
+        } catch (RejectedExecutionException e) {
+            // Too many jobs running or queued; the client should retry later
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<ThumbnailJob.Status> getJob(@PathVariable String id) {
+        return jobService.find(id).map(job -> ResponseEntity.ok(job.snapshot()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/jobs/{id}")
+    public ResponseEntity<ThumbnailJob.Status> cancelJob(@PathVariable String id) {
+        return jobService.cancel(id).map(job -> ResponseEntity.ok(job.snapshot()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<ThumbnailCache.Stats> cacheStats() {
+        return ResponseEntity.ok(thumbnailCache.stats());
+    }
+
+    // Prefers WebP only when explicitly acceptable: wildcards alone do not prove the client can
+    // decode it. PNG thumbnails map to lossless WebP, JPEG ones to lossy.
+    private ThumbnailFormat negotiateFormat(String accept, StoredThumbnail thumbnail) {
+        boolean png = thumbnail.format().equals("png");
+        ThumbnailFormat stored = thumbnailEncoder.format(png ? "png" : "jpg");
+        ThumbnailFormat webp = thumbnailEncoder.format(png ? "webp-lossless" : "webp");
+        if (accept == null || webp == null) {
+            return stored;
+        }
+        try {
+            for (MediaType type : MediaType.parseMediaTypes(accept)) {
+                if (!type.isWildcardSubtype() && type.isCompatibleWith(WEBP)
+                        && type.getQualityValue() > 0) {
+                    return webp;
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            // Malformed header: serve the stored format
+        }
+        return stored;
+    }
+
+    // Null when the path, with ".." segments and symbolic links resolved, lies outside the
+    // allowed base path
+    private File resolveAllowedPath(String path) {
+        File file;
+        try {
+            file = resolvePath(path).getCanonicalFile();
+        } catch (IOException e) {
+            return null;
+        }
+        return allowedBase == null || file.toPath().startsWith(allowedBase) ? file : null;
+    }
+
+    private File resolvePath(String path) {
+        // Decode URL and handle spaces properly
+        String decodedPath = URLDecoder.decode(path, StandardCharsets.UTF_8);
+        // Convert to Windows-style path if needed
+        decodedPath = decodedPath.replace('/', File.separatorChar);
+        return new File(decodedPath);
+    }
 }
@@ -0,0 +1,59 @@
+package com.techpool.tech;
+
+import com.techpool.tech.utils.ThumbnailFormat;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Encodes finished thumbnails with one of the registered {@link ThumbnailFormat}s. The bytes
+ * are written by the {@link com.techpool.tech.utils.ThumbnailStore}, which never lets readers
+ * see a partially written thumbnail.
+ */
+@Component
+public class ThumbnailEncoder {
+
+    private final Map<String, ThumbnailFormat> formats = new LinkedHashMap<>();
+
+    public ThumbnailEncoder(List<ThumbnailFormat> formats) {
+        for (ThumbnailFormat format : formats) {
+            this.formats.put(format.name(), format);
+        }
+    }
+
+    /** Returns the format registered under name ("jpeg" is accepted for "jpg"), or null. */
+    public ThumbnailFormat format(String name) {
+        String key = name.toLowerCase(Locale.ROOT);
+        return formats.get(key.equals("jpeg") ? "jpg" : key);
+    }
+
+    /** File extensions of the registered formats, each once. */
+    public Set<String> extensions() {
+        Set<String> extensions = new LinkedHashSet<>();
+        formats.values().forEach(format -> extensions.add(format.extension()));
+        return extensions;
+    }
+
+    /** Encodes the image in memory; thumbnails are small enough for this to be cheap. */
+    public byte[] encode(BufferedImage image, String formatName) throws IOException {
+        ThumbnailFormat format = format(formatName);
+        if (format == null) {
+            throw new IOException("No suitable writer found for format: " + formatName);
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+        try (ImageOutputStream out = new MemoryCacheImageOutputStream(buffer)) {
+            format.write(image, out);
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,190 @@
+package com.techpool.tech;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import com.techpool.tech.utils.VirtualThreads;
+
+import java.io.File;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dedicated worker pools for thumbnail jobs, one per workload class, so slow subprocesses and
+ * office conversions cannot starve raster work (or the JVM-wide common ForkJoinPool). Queues are
+ * bounded; when a pool is saturated the submitting thread runs the task itself, which throttles
+ * directory traversal instead of buffering an unbounded backlog.
+ *
+ * <p>With {@code spring.threads.virtual.enabled} on a Java 21+ runtime, BLOCKING tasks each run
+ * on their own virtual thread instead, so threads parked on ffmpeg or disk cost next to
+ * nothing. A semaphore of {@code max-in-flight} permits takes the place of the bounded queue;
+ * ffmpeg and PDFBox keep their own concurrency caps. CPU and office work stays on the
+ * platform pools, sized to the carrier threads.
+ */
+@Component
+public class ThumbnailExecutors {
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailExecutors.class);
+
+    public enum Workload {
+        // Raster decode, PDF rendering, text previews
+        CPU,
+        // ffmpeg subprocesses and other blocking I/O
+        BLOCKING,
+        // Word/Excel/PowerPoint parsing and conversion
+        OFFICE
+    }
+
+    private static final Set<String> VIDEO_EXTENSIONS = Set.of("mp4", "avi", "mkv", "mov", "wmv",
+            "flv", "webm", "m4v", "mpg", "mpeg", "3gp");
+    private static final Set<String> OFFICE_EXTENSIONS = Set.of("doc", "docx", "xls", "xlsx",
+            "ppt", "pptx", "odt", "ods", "odp");
+
+    private final Map<Workload, ThreadPoolExecutor> pools = new EnumMap<>(Workload.class);
+    // Virtual-thread mode for BLOCKING work; factory is null in platform mode
+    private final ThreadFactory virtualThreads;
+    private final int virtualMaxInFlight;
+    private final Semaphore virtualPermits;
+    private volatile boolean shutdown;
+
+    public ThumbnailExecutors(@Value("${thumbnail.pool.cpu.size:0}") int cpuSize,
+            @Value("${thumbnail.pool.cpu.queue-capacity:256}") int cpuQueue,
+            @Value("${thumbnail.pool.blocking.size:8}") int blockingSize,
+            @Value("${thumbnail.pool.blocking.queue-capacity:256}") int blockingQueue,
+            @Value("${thumbnail.pool.office.size:2}") int officeSize,
+            @Value("${thumbnail.pool.office.queue-capacity:64}") int officeQueue,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtual,
+            @Value("${thumbnail.pool.blocking.max-in-flight:64}") int blockingMaxInFlight) {
+        // 0 means one thread per available processor
+        int cpus = Runtime.getRuntime().availableProcessors();
+        pools.put(Workload.CPU, newPool("thumb-cpu", cpuSize > 0 ? cpuSize : cpus, cpuQueue));
+        pools.put(Workload.BLOCKING, newPool("thumb-io", blockingSize, blockingQueue));
+        pools.put(Workload.OFFICE, newPool("thumb-office", officeSize, officeQueue));
+        if (virtual && !VirtualThreads.isSupported()) {
+            logger.warn("Virtual threads requested but not available on Java {}, blocking work "
+                    + "uses platform threads", Runtime.version().feature());
+        }
+        this.virtualThreads = virtual && VirtualThreads.isSupported()
+                ? VirtualThreads.factory("thumb-io-v") : null;
+        this.virtualMaxInFlight = Math.max(1, blockingMaxInFlight);
+        this.virtualPermits = new Semaphore(virtualMaxInFlight, true);
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads != null;
+    }
+
+    public static Workload classify(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        String extension = dot >= 0 ? name.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+        if (VIDEO_EXTENSIONS.contains(extension)) {
+            return Workload.BLOCKING;
+        }
+        if (OFFICE_EXTENSIONS.contains(extension)) {
+            return Workload.OFFICE;
+        }
+        return Workload.CPU;
+    }
+
+    public void execute(Workload workload, Runnable task) {
+        if (workload == Workload.BLOCKING && virtualThreads != null) {
+            executeVirtual(task);
+        } else {
+            pools.get(workload).execute(task);
+        }
+    }
+
+    // Waiting for a permit throttles the submitter as a full queue does; after shutdown or on
+    // interruption the task runs on the caller, like the pools' rejection policy
+    private void executeVirtual(Runnable task) {
+        if (shutdown) {
+            task.run();
+            return;
+        }
+        try {
+            virtualPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.run();
+            return;
+        }
+        try {
+            virtualThreads.newThread(() -> {
+                try {
+                    task.run();
+                } finally {
+                    virtualPermits.release();
+                }
+            }).start();
+        } catch (RuntimeException | Error e) {
+            virtualPermits.release();
+            throw e;
+        }
+    }
+
+    // In virtual-thread mode: submitters waiting for a permit
+    public int queueDepth(Workload workload) {
+        if (workload == Workload.BLOCKING && virtualThreads != null) {
+            return virtualPermits.getQueueLength();
+        }
+        return pools.get(workload).getQueue().size();
+    }
+
+    public int activeCount(Workload workload) {
+        if (workload == Workload.BLOCKING && virtualThreads != null) {
+            return virtualMaxInFlight - virtualPermits.availablePermits();
+        }
+        return pools.get(workload).getActiveCount();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shutdown = true;
+        pools.values().forEach(ThreadPoolExecutor::shutdown);
+        if (virtualThreads != null) {
+            try {
+                // All permits back means no virtual task is still running
+                if (!virtualPermits.tryAcquire(virtualMaxInFlight, 30, TimeUnit.SECONDS)) {
+                    logger.warn("Virtual blocking tasks still running at shutdown");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Map.Entry<Workload, ThreadPoolExecutor> entry : pools.entrySet()) {
+            try {
+                if (!entry.getValue().awaitTermination(30, TimeUnit.SECONDS)) {
+                    logger.warn("{} pool did not terminate, forcing shutdown", entry.getKey());
+                    entry.getValue().shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                entry.getValue().shutdownNow();
+            }
+        }
+    }
+
+    private static ThreadPoolExecutor newPool(String name, int size, int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory,
+                // Unlike CallerRunsPolicy this also runs tasks after shutdown, so callers waiting
+                // on completion are never left hanging
+                (task, executor) -> task.run());
+    }
+}
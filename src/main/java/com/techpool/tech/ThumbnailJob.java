@@ -0,0 +1,136 @@
+package com.techpool.tech;
+
+import java.io.File;
+import java.time.Instant;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/** A bulk generation run started through the job API, with its live progress counters. */
+public class ThumbnailJob implements ProcessingListener {
+
+    public enum State {
+        QUEUED, RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    private final String id;
+    private final String path;
+    private final Instant createdAt = Instant.now();
+    private final LongAdder discovered = new LongAdder();
+    private final LongAdder done = new LongAdder();
+    private final LongAdder fallback = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.QUEUED);
+    private volatile boolean cancelRequested;
+    private volatile long startedNanos;
+    private volatile long finishedNanos;
+    private volatile Instant finishedAt;
+    private volatile String error;
+    private volatile Future<?> future;
+
+    public ThumbnailJob(String id, String path) {
+        this.id = id;
+        this.path = path;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public boolean isFinished() {
+        State current = state.get();
+        return current == State.COMPLETED || current == State.CANCELLED
+                || current == State.FAILED;
+    }
+
+    @Override
+    public void onDiscovered(File file) {
+        discovered.increment();
+    }
+
+    @Override
+    public void onCompleted(File file, GenerationOutcome outcome) {
+        switch (outcome) {
+            case SUCCESS -> done.increment();
+            case FALLBACK -> fallback.increment();
+            case FAILURE -> failed.increment();
+            case SKIPPED -> skipped.increment();
+        }
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelRequested;
+    }
+
+    void attach(Future<?> future) {
+        this.future = future;
+    }
+
+    void cancel() {
+        if (isFinished()) {
+            return;
+        }
+        cancelRequested = true;
+        // Only a job still waiting for a traversal thread ends here; a running one stops
+        // cooperatively and is finished by its runner once its workers have drained
+        if (state.compareAndSet(State.QUEUED, State.CANCELLED)) {
+            markFinished(null);
+            Future<?> current = future;
+            if (current != null) {
+                current.cancel(false);
+            }
+        }
+    }
+
+    // False when the job was cancelled while queued and must not run
+    boolean start() {
+        if (!state.compareAndSet(State.QUEUED, State.RUNNING)) {
+            return false;
+        }
+        startedNanos = System.nanoTime();
+        return true;
+    }
+
+    void finish(State finalState, String message) {
+        markFinished(message);
+        state.set(finalState);
+    }
+
+    private void markFinished(String message) {
+        finishedNanos = System.nanoTime();
+        finishedAt = Instant.now();
+        error = message;
+    }
+
+    public Status snapshot() {
+        long processed = done.sum() + fallback.sum() + failed.sum() + skipped.sum();
+        double throughput = 0;
+        if (startedNanos != 0) {
+            long end = finishedNanos != 0 ? finishedNanos : System.nanoTime();
+            double seconds = (end - startedNanos) / 1_000_000_000.0;
+            throughput = seconds > 0 ? processed / seconds : 0;
+        }
+        return new Status(id, path, state.get(), discovered.sum(), done.sum(), fallback.sum(),
+                failed.sum(), skipped.sum(), throughput, createdAt, finishedAt, error);
+    }
+
+    /**
+     * Point-in-time view of a job returned by the API. {@code fallback} counts files that got the
+     * placeholder thumbnail, {@code failed} those that got nothing at all.
+     */
+    public record Status(String id, String path, State state, long discovered, long done,
+            long fallback, long failed, long skipped, double filesPerSecond, Instant createdAt,
+            Instant finishedAt, String error) {
+    }
+}
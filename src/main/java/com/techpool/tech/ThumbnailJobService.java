@@ -0,0 +1,121 @@
+package com.techpool.tech;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs bulk generation in the background so HTTP callers get a job ID back immediately. Each job
+ * drives {@link ThumbnailService#processPath(File, ProcessingListener)} on its own traversal
+ * thread. Memory stays bounded: at most {@code max-concurrent} running plus {@code queue-capacity}
+ * waiting jobs are accepted, and only the most recent {@code max-retained} finished jobs are kept.
+ */
+@Service
+public class ThumbnailJobService {
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailJobService.class);
+
+    private final ThumbnailService thumbnailService;
+    private final ThreadPoolExecutor jobExecutor;
+    private final int maxRetained;
+    // Insertion ordered so the oldest finished jobs are evicted first
+    private final Map<String, ThumbnailJob> jobs = new LinkedHashMap<>();
+
+    public ThumbnailJobService(ThumbnailService thumbnailService,
+            @Value("${thumbnail.jobs.max-concurrent:2}") int maxConcurrent,
+            @Value("${thumbnail.jobs.queue-capacity:16}") int queueCapacity,
+            @Value("${thumbnail.jobs.max-retained:100}") int maxRetained) {
+        this.thumbnailService = thumbnailService;
+        this.maxRetained = maxRetained;
+        AtomicInteger counter = new AtomicInteger();
+        this.jobExecutor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60,
+                TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "thumb-job-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Queues a job for the given file or directory.
+     *
+     * @throws RejectedExecutionException when too many jobs are already running or waiting
+     */
+    public ThumbnailJob submit(File path) {
+        ThumbnailJob job = new ThumbnailJob(UUID.randomUUID().toString(), path.getAbsolutePath());
+        synchronized (jobs) {
+            jobs.put(job.getId(), job);
+            evictFinishedJobs();
+        }
+        try {
+            job.attach(jobExecutor.submit(() -> run(job, path)));
+        } catch (RejectedExecutionException e) {
+            synchronized (jobs) {
+                jobs.remove(job.getId());
+            }
+            throw e;
+        }
+        return job;
+    }
+
+    public Optional<ThumbnailJob> find(String id) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(id));
+        }
+    }
+
+    public Optional<ThumbnailJob> cancel(String id) {
+        Optional<ThumbnailJob> job = find(id);
+        job.ifPresent(ThumbnailJob::cancel);
+        return job;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (jobs) {
+            jobs.values().forEach(ThumbnailJob::cancel);
+        }
+        jobExecutor.shutdownNow();
+    }
+
+    private void run(ThumbnailJob job, File path) {
+        if (!job.start()) {
+            // Cancelled while it was queued
+            return;
+        }
+        logger.info("Job {} started for {}", job.getId(), job.getPath());
+        try {
+            thumbnailService.processPath(path, job);
+            job.finish(job.isCancelled() ? ThumbnailJob.State.CANCELLED
+                    : ThumbnailJob.State.COMPLETED, null);
+        } catch (RuntimeException e) {
+            logger.error("Job {} failed", job.getId(), e);
+            job.finish(ThumbnailJob.State.FAILED, e.getMessage());
+        }
+        logger.info("Job {} finished: {}", job.getId(), job.getState());
+    }
+
+    private void evictFinishedJobs() {
+        Iterator<ThumbnailJob> iterator = jobs.values().iterator();
+        int excess = jobs.size() - maxRetained;
+        while (excess > 0 && iterator.hasNext()) {
+            if (iterator.next().isFinished()) {
+                iterator.remove();
+                excess--;
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.techpool.tech;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.techpool.tech.utils.CacheConfig;
+import com.techpool.tech.utils.FileFingerprint;
+import com.techpool.tech.utils.FileTypeUtil;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer instrumentation of the generation pipeline: a timer per stage and one per file,
+ * tagged by MIME family and outcome, plus gauges for pool queues, in-flight ffmpeg, PDFBox and
+ * generation work and the reserved decode memory. The Caffeine caches behind the pipeline are
+ * bound as cache.* meters.
+ */
+@Component
+public class ThumbnailMetrics {
+
+    public enum Stage {
+        DETECT, DECODE, RESIZE, ENCODE, WRITE
+    }
+
+    @FunctionalInterface
+    public interface StageWork<T> {
+        T run() throws IOException;
+    }
+
+    private final MeterRegistry registry;
+    // Family of the file the current thread is generating, for stages deep in the pipeline
+    private final ThreadLocal<String> currentFamily = new ThreadLocal<>();
+
+    public ThumbnailMetrics(MeterRegistry registry, ThumbnailExecutors executors,
+            VideoFrameExtractor videoFrameExtractor, PdfPageRenderer pdfPageRenderer,
+            MemoryBudget memoryBudget,
+            ThumbnailCache thumbnailCache, Cache<String, FileFingerprint> thumbnailFingerprintCache,
+            Cache<String, Map<String, FileFingerprint>> thumbnailIndexCache,
+            Cache<String, FileTypeUtil.DetectedType> mimeTypeCache) {
+        this.registry = registry;
+        for (ThumbnailExecutors.Workload workload : ThumbnailExecutors.Workload.values()) {
+            String tag = workload.name().toLowerCase(Locale.ROOT);
+            Gauge.builder("thumbnail.executor.queued", executors, e -> e.queueDepth(workload))
+                    .tag("workload", tag).register(registry);
+            Gauge.builder("thumbnail.executor.active", executors, e -> e.activeCount(workload))
+                    .tag("workload", tag).register(registry);
+        }
+        Gauge.builder("thumbnail.ffmpeg.active", videoFrameExtractor,
+                VideoFrameExtractor::activeCount).register(registry);
+        Gauge.builder("thumbnail.pdf.renders.active", pdfPageRenderer,
+                PdfPageRenderer::inFlight).register(registry);
+        Gauge.builder("thumbnail.memory.reserved", memoryBudget, MemoryBudget::reservedBytes)
+                .baseUnit("bytes").register(registry);
+        Gauge.builder("thumbnail.memory.waiting", memoryBudget, MemoryBudget::waiting)
+                .register(registry);
+        Gauge.builder("thumbnail.generations.in.flight", thumbnailCache,
+                cache -> cache.stats().inFlight()).register(registry);
+        FunctionCounter.builder("thumbnail.generations.coalesced", thumbnailCache,
+                cache -> cache.stats().coalesced()).register(registry);
+        CaffeineCacheMetrics.monitor(registry, thumbnailFingerprintCache,
+                CacheConfig.THUMBNAILS_CACHE);
+        CaffeineCacheMetrics.monitor(registry, thumbnailIndexCache, "thumbnailIndex");
+        CaffeineCacheMetrics.monitor(registry, mimeTypeCache, "mimeTypes");
+    }
+
+    /** Maps a MIME type to the coarse family used as a tag. */
+    public static String family(String mimeType) {
+        if (mimeType.startsWith("image/")) {
+            return "image";
+        }
+        if (mimeType.startsWith("video/")) {
+            return "video";
+        }
+        if (mimeType.equals("application/pdf")) {
+            return "pdf";
+        }
+        if (mimeType.equals("text/csv") || mimeType.contains("excel")
+                || mimeType.contains("spreadsheet")) {
+            return "spreadsheet";
+        }
+        if (mimeType.contains("word") || mimeType.contains("powerpoint")
+                || mimeType.contains("presentation") || mimeType.contains("opendocument")) {
+            return "document";
+        }
+        return "other";
+    }
+
+    /** Attributes stages timed on this thread to the given family until {@link #endFile()}. */
+    public void beginFile(String family) {
+        currentFamily.set(family);
+    }
+
+    public void endFile() {
+        currentFamily.remove();
+    }
+
+    /** Runs one stage, recording its duration with outcome "failure" if it throws. */
+    public <T> T time(Stage stage, StageWork<T> work) throws IOException {
+        long start = System.nanoTime();
+        String outcome = "failure";
+        try {
+            T result = work.run();
+            outcome = "success";
+            return result;
+        } finally {
+            recordStage(stage, currentFamily(), outcome, System.nanoTime() - start);
+        }
+    }
+
+    public void recordStage(Stage stage, String family, String outcome, long nanos) {
+        Timer.builder("thumbnail.stage").description("Time spent per pipeline stage")
+                .tag("stage", stage.name().toLowerCase(Locale.ROOT)).tag("family", family)
+                .tag("outcome", outcome).register(registry).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Records a whole file's generation, tagged with how it ended. */
+    public void recordGeneration(String family, GenerationOutcome outcome, long nanos) {
+        Timer.builder("thumbnail.generation").description("Time to generate one thumbnail")
+                .tag("family", family).tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                .register(registry).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public String currentFamily() {
+        String family = currentFamily.get();
+        return family != null ? family : "other";
+    }
+}
@@ -0,0 +1,236 @@
+package com.techpool.tech;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs thumbnail generation as a staged pipeline so the I/O of some files overlaps the CPU work
+ * of others: detect (validation, freshness, MIME type) -> render (decode) -> resize -> store
+ * (encode and write). Stages are joined by bounded queues; a full queue blocks the stage
+ * feeding it, which in turn blocks {@link #submit}. Every stage runs on its own threads, with
+ * separate render threads per workload class so ffmpeg and office work cannot starve raster
+ * work. Back-pressure therefore never blocks the shared {@link ThumbnailExecutors} pools, whose
+ * tasks may themselves be waiting on generations in this pipeline. Generations share the
+ * single-flight registry of {@link ThumbnailCache}, so a file already being generated by any
+ * caller is not generated again.
+ */
+@Component
+public class ThumbnailPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailPipeline.class);
+
+    private final ThumbnailService thumbnailService;
+    private final ThumbnailCache thumbnailCache;
+    private final int detectThreads;
+    private final Map<ThumbnailExecutors.Workload, Integer> renderThreads =
+            new EnumMap<>(ThumbnailExecutors.Workload.class);
+    private final int resizeThreads;
+    private final int storeThreads;
+    private final BlockingQueue<Item<File>> detectQueue;
+    private final Map<ThumbnailExecutors.Workload,
+            BlockingQueue<Item<ThumbnailService.Detected>>> renderQueues =
+                    new EnumMap<>(ThumbnailExecutors.Workload.class);
+    private final BlockingQueue<Item<ThumbnailService.Rendered>> resizeQueue;
+    private final BlockingQueue<Item<ThumbnailService.Resized>> storeQueue;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean shutdown;
+
+    // A file between stages: the next stage's input and the future the last stage completes
+    private record Item<T>(T value, CompletableFuture<GenerationOutcome> result) {
+    }
+
+    @FunctionalInterface
+    private interface Stage<T> {
+        void run(Item<T> item) throws InterruptedException;
+    }
+
+    public ThumbnailPipeline(ThumbnailService thumbnailService, ThumbnailCache thumbnailCache,
+            MeterRegistry registry,
+            @Value("${thumbnail.pipeline.queue-capacity:64}") int queueCapacity,
+            @Value("${thumbnail.pipeline.detect-threads:4}") int detectThreads,
+            @Value("${thumbnail.pipeline.render.cpu-threads:0}") int cpuRenderThreads,
+            @Value("${thumbnail.pipeline.render.blocking-threads:4}") int blockingRenderThreads,
+            @Value("${thumbnail.pipeline.render.office-threads:2}") int officeRenderThreads,
+            @Value("${thumbnail.pipeline.resize-threads:0}") int resizeThreads,
+            @Value("${thumbnail.pipeline.store-threads:2}") int storeThreads) {
+        this.thumbnailService = thumbnailService;
+        this.thumbnailCache = thumbnailCache;
+        this.detectThreads = detectThreads;
+        // 0 means one thread per available processor
+        renderThreads.put(ThumbnailExecutors.Workload.CPU, cpuRenderThreads > 0
+                ? cpuRenderThreads : Runtime.getRuntime().availableProcessors());
+        renderThreads.put(ThumbnailExecutors.Workload.BLOCKING, blockingRenderThreads);
+        renderThreads.put(ThumbnailExecutors.Workload.OFFICE, officeRenderThreads);
+        // 0 means half the processors; the render stage already has the CPU pool
+        this.resizeThreads = resizeThreads > 0 ? resizeThreads
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.storeThreads = storeThreads;
+        this.detectQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.resizeQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.storeQueue = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("thumbnail.pipeline.queued", detectQueue, BlockingQueue::size)
+                .tag("stage", "detect").register(registry);
+        for (ThumbnailExecutors.Workload workload : ThumbnailExecutors.Workload.values()) {
+            BlockingQueue<Item<ThumbnailService.Detected>> queue =
+                    new ArrayBlockingQueue<>(queueCapacity);
+            renderQueues.put(workload, queue);
+            Gauge.builder("thumbnail.pipeline.queued", queue, BlockingQueue::size)
+                    .tag("stage", "render-" + workload.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+        }
+        Gauge.builder("thumbnail.pipeline.queued", resizeQueue, BlockingQueue::size)
+                .tag("stage", "resize").register(registry);
+        Gauge.builder("thumbnail.pipeline.queued", storeQueue, BlockingQueue::size)
+                .tag("stage", "store").register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        startWorkers("thumb-pipe-detect", detectThreads, detectQueue, this::detect);
+        renderThreads.forEach((workload, threads) -> startWorkers(
+                "thumb-pipe-render-" + workload.name().toLowerCase(Locale.ROOT), threads,
+                renderQueues.get(workload), this::render));
+        startWorkers("thumb-pipe-resize", resizeThreads, resizeQueue, this::resize);
+        startWorkers("thumb-pipe-store", storeThreads, storeQueue, this::store);
+    }
+
+    /**
+     * Stops the workers and completes every file still queued between stages with SKIPPED, so
+     * no caller, and no single-flight entry in {@link ThumbnailCache}, waits forever.
+     */
+    @PreDestroy
+    public void shutdown() {
+        shutdown = true;
+        workers.forEach(Thread::interrupt);
+        // Workers finish the item in hand first; it may still be handed to the next queue
+        for (Thread worker : workers) {
+            try {
+                worker.join(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        skipQueued();
+    }
+
+    /**
+     * Queues a source file, blocking while the pipeline is full. The future completes with the
+     * outcome once its thumbnails are written, or with SKIPPED when the file is up to date,
+     * rejected, or the pipeline shuts down first.
+     */
+    public CompletableFuture<GenerationOutcome> submit(File file) {
+        return thumbnailCache.generateOnceAsync(file, () -> {
+            CompletableFuture<GenerationOutcome> result = new CompletableFuture<>();
+            if (shutdown) {
+                result.complete(GenerationOutcome.SKIPPED);
+                return result;
+            }
+            try {
+                detectQueue.put(new Item<>(file, result));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.complete(GenerationOutcome.SKIPPED);
+            }
+            // Shutdown may have drained the queues just before the put
+            if (shutdown) {
+                skipQueued();
+            }
+            return result;
+        });
+    }
+
+    private void detect(Item<File> item) throws InterruptedException {
+        ThumbnailService.Detected detected = thumbnailService.detect(item.value(), false);
+        if (detected == null) {
+            item.result().complete(GenerationOutcome.SKIPPED);
+            return;
+        }
+        renderQueues.get(ThumbnailExecutors.classify(item.value()))
+                .put(new Item<>(detected, item.result()));
+    }
+
+    private void render(Item<ThumbnailService.Detected> item) throws InterruptedException {
+        ThumbnailService.Rendered rendered;
+        try {
+            rendered = thumbnailService.render(item.value());
+        } catch (RuntimeException e) {
+            item.result().complete(thumbnailService.failed(item.value(), e));
+            return;
+        }
+        resizeQueue.put(new Item<>(rendered, item.result()));
+    }
+
+    private void resize(Item<ThumbnailService.Rendered> item) throws InterruptedException {
+        ThumbnailService.Resized resized;
+        try {
+            resized = thumbnailService.resize(item.value());
+        } catch (IOException | RuntimeException e) {
+            item.result().complete(thumbnailService.failed(item.value().source(), e));
+            return;
+        }
+        storeQueue.put(new Item<>(resized, item.result()));
+    }
+
+    private void store(Item<ThumbnailService.Resized> item) {
+        item.result().complete(thumbnailService.store(item.value()));
+    }
+
+    private void skipQueued() {
+        List<BlockingQueue<? extends Item<?>>> queues = new ArrayList<>();
+        queues.add(detectQueue);
+        queues.addAll(renderQueues.values());
+        queues.add(resizeQueue);
+        queues.add(storeQueue);
+        for (BlockingQueue<? extends Item<?>> queue : queues) {
+            Item<?> item;
+            while ((item = queue.poll()) != null) {
+                item.result().complete(GenerationOutcome.SKIPPED);
+            }
+        }
+    }
+
+    private <T> void startWorkers(String name, int count, BlockingQueue<Item<T>> queue,
+            Stage<T> stage) {
+        for (int i = 1; i <= count; i++) {
+            Thread thread = new Thread(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    Item<T> item;
+                    try {
+                        item = queue.take();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    try {
+                        stage.run(item);
+                    } catch (InterruptedException e) {
+                        item.result().complete(GenerationOutcome.SKIPPED);
+                        return;
+                    } catch (RuntimeException e) {
+                        logger.error("Pipeline stage {} failed", name, e);
+                        item.result().complete(GenerationOutcome.FAILURE);
+                    }
+                }
+            }, name + "-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            workers.add(thread);
+        }
+    }
+}
@@ -1,41 +1,49 @@
 package com.techpool.tech;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import fr.opensagres.poi.xwpf.converter.pdf.PdfConverter;
 import fr.opensagres.poi.xwpf.converter.pdf.PdfOptions;
-import org.apache.tika.Tika;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import net.coobird.thumbnailator.Thumbnails;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
-import org.apache.pdfbox.rendering.PDFRenderer;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.poi.hwpf.HWPFDocument;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.techpool.tech.utils.BesideSourceThumbnailStore;
+import com.techpool.tech.utils.DocxPreviewRenderer;
+import com.techpool.tech.utils.FileFingerprint;
+import com.techpool.tech.utils.FileTypeUtil;
+import com.techpool.tech.utils.FrameAnalysis;
+import com.techpool.tech.utils.ImageDecoder;
+import com.techpool.tech.utils.RasterPool;
+import com.techpool.tech.utils.SpreadsheetPreviewReader;
+import com.techpool.tech.utils.StoredThumbnail;
+import com.techpool.tech.utils.ThumbnailFormat;
+import com.techpool.tech.utils.ThumbnailStore;
 import javax.imageio.ImageIO;
-import com.opencsv.CSVReader;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Phaser;
 import java.util.stream.Collectors;
 
 @Service
@@ -47,92 +55,445 @@ public class ThumbnailService {
     private int THUMBNAIL_WIDTH;
     @Value("${thumbnail.height}")
     private int THUMBNAIL_HEIGHT;
-    private static final String THUMBNAIL_PREFIX = "thumb_";
+    private static final String STORYBOARD_SUFFIX = "_storyboard";
     private static final String DEFAULT_THUMBNAIL_TEXT = "No Preview\nAvailable";
-    private static final long MAX_FILE_SIZE_BYTES = 10 * 1024 * 1024; // 10MB
 
-    // Add cache (use Spring's Cacheable)
-    @Cacheable(value = "thumbnails", key = "#file.absolutePath")
+    // Fonts of the drawn previews, shared instead of created per image
+    private static final Font TITLE_FONT = new Font("Arial", Font.BOLD, 14);
+    private static final Font BODY_FONT = new Font("Arial", Font.PLAIN, 12);
+    private static final Font HEADER_FONT = new Font("Arial", Font.BOLD, 12);
+    private static final Font DATA_FONT = new Font("Courier New", Font.PLAIN, 10);
+    private static final Font FOOTER_FONT = new Font("Arial", Font.PLAIN, 10);
+    private static final Font LABEL_FONT = new Font("Arial", Font.BOLD, 24);
+    private static final Font NOTE_FONT = new Font("Arial", Font.ITALIC, 12);
+    private static final Color DATA_BACKGROUND = new Color(240, 240, 240);
+    private static final Color DATA_HEADER = new Color(0, 82, 165);
+    private static final Color ICON_FILL = new Color(200, 230, 255);
+
+    // Extra named sizes, e.g. grid:200x300,detail:800x1200, produced from the same decode
+    @Value("${thumbnail.renditions:}")
+    private String renditionSpec;
+    // Primary size plus renditions, largest first
+    private List<Rendition> outputSizes;
+    // Sources are decoded or rendered once, big enough for the largest output
+    private int decodeWidth;
+    private int decodeHeight;
+
+    // Canvases for text, data and placeholder previews, reused across files
+    @Value("${thumbnail.canvas-pool.size:16}")
+    private int canvasPoolSize;
+    private RasterPool canvasPool;
+    // Encoded placeholder thumbnails per extension label, in outputSizes order
+    private final Cache<String, List<byte[]>> placeholders =
+            Caffeine.newBuilder().maximumSize(256).build();
+
+    // When enabled, files whose thumbnail is already current are skipped
+    @Value("${thumbnail.incremental:true}")
+    private boolean incremental;
+
+    @Autowired
+    private ThumbnailCache thumbnailCache;
+
+    @Autowired
+    private ThumbnailExecutors executors;
+
+    @Autowired
+    private DirectoryScanner directoryScanner;
+
+    @Autowired
+    private VideoFrameExtractor videoFrameExtractor;
+
+    @Autowired
+    private PdfPageRenderer pdfPageRenderer;
+
+    @Autowired
+    private MemoryBudget memoryBudget;
+
+    @Autowired
+    private ThumbnailEncoder thumbnailEncoder;
+
+    @Autowired
+    private ThumbnailStore thumbnailStore;
+
+    @Autowired
+    private Cache<String, FileTypeUtil.DetectedType> mimeTypeCache;
+
+    @Autowired
+    private ThumbnailMetrics metrics;
+
+    // "fixed" grabs the frame at thumbnail.video.seek-offset; "smart" samples and scores frames
+    @Value("${thumbnail.video.frame-selection:smart}")
+    private String videoFrameSelection;
+    @Value("${thumbnail.video.sample-count:5}")
+    private int videoSampleCount;
+    @Value("${thumbnail.video.sample-budget-ms:10000}")
+    private long videoSampleBudgetMillis;
+    @Value("${thumbnail.video.storyboard:false}")
+    private boolean videoStoryboard;
+    @Value("${thumbnail.video.storyboard-tile-width:160}")
+    private int storyboardTileWidth;
+
+    // Document MIME types drawn by the direct first-page renderer instead of the full
+    // DOCX->PDF conversion, which stays as the fallback when the fast path fails
+    @Value("${thumbnail.document.fast-render-types:}")
+    private Set<String> fastRenderDocumentTypes;
+
+    @PostConstruct
+    void initRenditions() {
+        outputSizes = new ArrayList<>();
+        outputSizes.add(new Rendition("", THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT));
+        outputSizes.addAll(Rendition.parse(renditionSpec));
+        outputSizes.sort(Rendition.LARGEST_FIRST);
+        decodeWidth = outputSizes.stream().mapToInt(Rendition::width).max().getAsInt();
+        decodeHeight = outputSizes.stream().mapToInt(Rendition::height).max().getAsInt();
+        canvasPool = new RasterPool(THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT, canvasPoolSize);
+    }
+
     public void processPath(File file) {
-        try {
-            validateFileSize(file);
-            if (file.isFile()) {
-                generateThumbnail(file);
-                logger.info("Generating thumbnail for: {}", file.getAbsolutePath());
-            } else {
-                processDirectory(file);
+        processPath(file, ProcessingListener.NONE);
+    }
+
+    public void processPath(File file, ProcessingListener listener) {
+        if (listener.isCancelled()) {
+            return;
+        }
+        if (file.isFile()) {
+            if (isGeneratedFile(file)) {
+                return;
             }
-        } catch (IOException e) {
-            logger.error("Security violation for file " + file.getAbsolutePath(), e);
+            listener.onDiscovered(file);
+            listener.onCompleted(file, processFile(file));
+        } else {
+            processDirectory(file, listener);
         }
     }
 
-    private void processDirectory(File dir) {
-        try {
-            File[] children = dir.listFiles();
-            if (children != null) {
-                Arrays.stream(children).parallel().forEach(this::processPath);
+    /**
+     * Returns the thumbnail of a source file at the named size (null or empty for the primary
+     * size), generating it first when it is missing or out of date. Concurrent requests for
+     * the same file share one generation. Returns null when no thumbnail could be produced.
+     *
+     * @throws IllegalArgumentException if size names no configured rendition
+     */
+    public StoredThumbnail thumbnailFor(File file, String size) {
+        Rendition rendition = rendition(size);
+        if (!file.isFile() || isGeneratedFile(file)) {
+            return null;
+        }
+        StoredThumbnail thumbnail =
+                isThumbnailCurrent(file) ? existingThumbnail(file, rendition.suffix()) : null;
+        if (thumbnail == null) {
+            // A missing rendition of a current thumbnail (sizes added since) forces a rebuild
+            processFile(file, true);
+            thumbnail = existingThumbnail(file, rendition.suffix());
+        }
+        return thumbnail;
+    }
+
+    private Rendition rendition(String size) {
+        if (size == null || size.isEmpty()) {
+            return outputSizes.stream().filter(r -> r.name().isEmpty()).findFirst().get();
+        }
+        return outputSizes.stream().filter(r -> r.name().equals(size)).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown size: " + size));
+    }
+
+    /**
+     * Returns a thumbnail from {@link #thumbnailFor} re-encoded in another format. Variants are
+     * stored beside the thumbnail on first request and rebuilt once the thumbnail is newer than
+     * them.
+     */
+    public StoredThumbnail thumbnailVariant(File file, String size, StoredThumbnail thumbnail,
+            ThumbnailFormat format) throws IOException {
+        if (thumbnail.format().equals(format.extension())) {
+            return thumbnail;
+        }
+        String suffix = rendition(size).suffix();
+        StoredThumbnail variant = thumbnailStore.find(file, suffix, format.extension());
+        if (variant == null || variant.lastModified() < thumbnail.lastModified()) {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(thumbnail.read()));
+            if (image == null) {
+                throw new IOException("Unreadable thumbnail of " + file);
             }
-            logger.info("Found Directory, Moving inside");
-            logger.info("Generating thumbnail for child: {}", dir.getAbsolutePath());
+            thumbnailStore.write(file, suffix, format.extension(),
+                    thumbnailEncoder.encode(image, format.name()));
+            variant = thumbnailStore.find(file, suffix, format.extension());
+        }
+        return variant;
+    }
 
-        } catch (Exception e) {
-            logger.error("Failed to generate thumbnail for {}", dir.getName(), e);
-            processDirectory(dir); // just call it again; no need to catch IOException
+    private GenerationOutcome processFile(File file) {
+        return processFile(file, false);
+    }
+
+    // Overlapping callers (jobs over the same tree, on-demand requests) share one generation
+    // per file instead of redoing it and racing on the same output paths
+    private GenerationOutcome processFile(File file, boolean force) {
+        return processFile(file, force, null);
+    }
+
+    // fingerprint: size and mtime already read by a directory scan, else null
+    private GenerationOutcome processFile(File file, boolean force, FileFingerprint fingerprint) {
+        return thumbnailCache.generateOnce(file,
+                () -> generateIfNeeded(file, force, fingerprint));
+    }
+
+    private GenerationOutcome generateIfNeeded(File file, boolean force,
+            FileFingerprint fingerprint) {
+        Detected detected = detect(file, force, fingerprint);
+        if (detected == null) {
+            return GenerationOutcome.SKIPPED;
         }
+        try {
+            return store(resize(render(detected)));
+        } catch (IOException | RuntimeException e) {
+            return failed(detected, e);
+        }
+    }
+
+    // Generation runs as four stages. The synchronous path above chains them on one thread;
+    // ThumbnailPipeline runs each on its own workers with bounded queues in between.
+
+    /**
+     * A source that needs a thumbnail, with its detected type (null if detection failed) and
+     * its size and mtime from before it was read, which the thumbnail is recorded for.
+     */
+    record Detected(File file, String mimeType, String family, FileFingerprint fingerprint,
+            long startNanos) {
     }
 
-    // Add validation method
-    private void validateFileSize(File file) throws IOException {
-        if (file.length() > MAX_FILE_SIZE_BYTES) {
-            throw new IOException("File too large: " + file.getName());
+    /**
+     * A decoded or rendered source and the format its thumbnails are written in. Placeholders
+     * carry their already encoded outputs instead of an image.
+     */
+    record Rendered(Detected source, BufferedImage image, String format,
+            GenerationOutcome outcome, List<byte[]> encoded) {
+
+        Rendered(Detected source, BufferedImage image, String format,
+                GenerationOutcome outcome) {
+            this(source, image, format, outcome, null);
         }
     }
 
-    private void generateThumbnail(File file) {
+    /** The rendered source scaled to every output size, in outputSizes order. */
+    record Resized(Rendered rendered, List<BufferedImage> outputs) {
+    }
+
+    /**
+     * Stage 1 (I/O): checks whether the file's thumbnail is current and detects its type.
+     * Returns null when the file needs no generation.
+     */
+    Detected detect(File file, boolean force) {
+        return detect(file, force, null);
+    }
+
+    private Detected detect(File file, boolean force, FileFingerprint fingerprint) {
+        // Size and mtime are read once and reused by every check below
+        FileFingerprint current = fingerprint != null ? fingerprint : FileFingerprint.of(file);
+        if (!force && incremental && isThumbnailCurrent(file, current)) {
+            logger.debug("Thumbnail up to date for: {}", file.getAbsolutePath());
+            return null;
+        }
+        long start = System.nanoTime();
         try {
-            validateFileSize(file);
-            String type = detectMimeType(file);
-            logger.info("Detected MIME type for {}: {}", file.getName(), type);
+            String type = detectMimeType(file, current);
+            String family = ThumbnailMetrics.family(type);
+            metrics.recordStage(ThumbnailMetrics.Stage.DETECT, family, "success",
+                    System.nanoTime() - start);
+            logger.debug("Detected MIME type for {}: {}", file.getName(), type);
+            return new Detected(file, type, family, current, start);
+        } catch (IOException e) {
+            logger.error("Failed to detect type of {}", file.getName(), e);
+            metrics.recordStage(ThumbnailMetrics.Stage.DETECT, "other", "failure",
+                    System.nanoTime() - start);
+            return new Detected(file, null, "other", current, start);
+        }
+    }
 
+    /**
+     * Stage 2 (CPU, ffmpeg or office work): decodes or renders the source at the largest
+     * output size. Failures fall back to the placeholder image, so this never throws.
+     */
+    Rendered render(Detected source) {
+        File file = source.file();
+        metrics.beginFile(source.family());
+        try {
+            if (source.mimeType() == null) {
+                throw new IOException("Unknown type");
+            }
             int attempts = 0;
-            while (attempts < 2) {
+            while (true) {
                 try {
-                    if (type.startsWith("image")) {
-                        generateImageThumbnail(file);
-                    } else if (type.startsWith("video")) {
-                        generateVideoThumbnail(file);
-                    } else if (type.equals("application/pdf")) {
-                        generatePdfThumbnail(file);
-                    } else if (isSupportedDocument(type)) {
-                        generateDocumentThumbnail(file, type);
-                    } else if (type.equals("text/csv") || type.equals("application/vnd.ms-excel")
-                            || type.equals(
-                                    "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")) {
-                        generateExcelThumbnail(file);
-                    } else {
-                        generateDefaultThumbnail(file);
+                    BufferedImage image = renderSource(file, source.mimeType());
+                    if (image == null) {
+                        return placeholder(source, GenerationOutcome.SUCCESS);
                     }
-                    return; // Success
+                    return new Rendered(source, image, outputFormat(file, source.mimeType()),
+                            GenerationOutcome.SUCCESS);
                 } catch (IOException e) {
                     attempts++;
-                    if (attempts >= 2)
+                    if (attempts >= 2 || e instanceof MemoryBudget.OverBudgetException)
                         throw e;
                     logger.warn("Attempt {} failed, retrying...", attempts);
                 }
             }
         } catch (Exception e) {
             logger.error("Failed to generate thumbnail for {}", file.getName(), e);
-            try {
-                generateDefaultThumbnail(file);
-            } catch (IOException ex) {
-                logger.error("Failed to generate default thumbnail for {}", file.getName(), ex);
+            return placeholder(source, GenerationOutcome.FALLBACK);
+        } finally {
+            metrics.endFile();
+        }
+    }
+
+    /** Stage 3 (CPU): scales the rendered image to every output size. */
+    Resized resize(Rendered rendered) throws IOException {
+        if (rendered.encoded() != null) {
+            return new Resized(rendered, List.of());
+        }
+        metrics.beginFile(rendered.source().family());
+        try {
+            return new Resized(rendered, scaleToOutputSizes(rendered.image()));
+        } finally {
+            metrics.endFile();
+        }
+    }
+
+    /**
+     * Stage 4 (CPU then I/O): encodes and writes every output, records the thumbnail in the
+     * cache and the generation in the metrics. Returns the rendered canvas to the pool.
+     */
+    GenerationOutcome store(Resized resized) {
+        Rendered rendered = resized.rendered();
+        Detected source = rendered.source();
+        File file = source.file();
+        metrics.beginFile(source.family());
+        try {
+            if (rendered.encoded() != null) {
+                writeEncoded(rendered.encoded(), file);
+            } else {
+                writeOutputs(resized.outputs(), file, rendered.format());
             }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to write thumbnail for {}", file.getName(), e);
+            return failed(source, e);
+        } finally {
+            metrics.endFile();
+            // Outputs of the primary size may be the canvas itself, so only now it is free
+            canvasPool.release(rendered.image());
+        }
+        GenerationOutcome outcome = rendered.outcome();
+        if (thumbnailExists(file)) {
+            thumbnailCache.record(file, source.fingerprint());
         }
+        metrics.recordGeneration(source.family(), outcome, System.nanoTime() - source.startNanos());
+        logger.debug("Generated thumbnail for {}: {}", file.getAbsolutePath(), outcome);
+        return outcome;
+    }
+
+    /** Ends a generation that threw between stages. */
+    GenerationOutcome failed(Detected source, Exception e) {
+        logger.debug("Generation of {} failed", source.file(), e);
+        metrics.recordGeneration(source.family(), GenerationOutcome.FAILURE,
+                System.nanoTime() - source.startNanos());
+        return GenerationOutcome.FAILURE;
+    }
+
+    // Thumbnails (including thumb_ files of the beside-source layout) and index files from
+    // earlier runs are outputs, never inputs
+    boolean isGeneratedFile(File file) {
+        String name = file.getName();
+        return name.startsWith(BesideSourceThumbnailStore.PREFIX)
+                || name.startsWith(ThumbnailCache.INDEX_FILE_NAME)
+                || thumbnailStore.isStoreFile(file);
     }
 
-    private String detectMimeType(File file) throws IOException {
-        return new Tika().detect(file);
+    private boolean isThumbnailCurrent(File file) {
+        return isThumbnailCurrent(file, FileFingerprint.of(file));
+    }
+
+    private boolean isThumbnailCurrent(File file, FileFingerprint current) {
+        switch (thumbnailCache.check(file, current)) {
+            case CURRENT:
+                return thumbnailExists(file);
+            case STALE:
+                return false;
+            default:
+                // Not indexed yet (e.g. thumbnails from before the index existed): trust a
+                // thumbnail that is at least as new as its source and index it
+                StoredThumbnail thumbnail = existingThumbnail(file, "");
+                if (thumbnail != null && thumbnail.lastModified() >= current.lastModified()) {
+                    thumbnailCache.record(file, current);
+                    return true;
+                }
+                return false;
+        }
+    }
+
+    private void processDirectory(File dir, ProcessingListener listener) {
+        logger.debug("Found Directory, Moving inside: {}", dir.getAbsolutePath());
+        // One party for this thread plus one per file handed to a pool
+        Phaser pending = new Phaser(1);
+        directoryScanner.scan(dir.toPath(), this::shouldScan, entry -> {
+            File file = entry.path().toFile();
+            FileFingerprint fingerprint = entry.fingerprint();
+            pending.register();
+            // Reported before the file waits for a worker, so discovered leads the others
+            listener.onDiscovered(file);
+            executors.execute(ThumbnailExecutors.classify(file), () -> {
+                try {
+                    listener.onCompleted(file, listener.isCancelled() ? GenerationOutcome.SKIPPED
+                            : processFile(file, false, fingerprint));
+                } finally {
+                    pending.arriveAndDeregister();
+                }
+            });
+        }, listener::isCancelled);
+        pending.arriveAndAwaitAdvance();
+    }
+
+    // Drops outputs before they are queued; size is no reason to skip a file, the memory a
+    // render needs is reserved when it starts
+    private boolean shouldScan(DirectoryScanner.Entry entry) {
+        return !isGeneratedFile(entry.path().toFile());
+    }
+
+    // Null when the type has no renderer and gets the placeholder
+    private BufferedImage renderSource(File file, String type) throws IOException {
+        if (type.startsWith("image")) {
+            return renderImage(file, type);
+        } else if (type.startsWith("video")) {
+            return renderVideo(file);
+        } else if (type.equals("application/pdf")) {
+            return renderPdf(file);
+        } else if (isSpreadsheet(type)) {
+            // Checked before isSupportedDocument, which also lists Excel types
+            return renderSpreadsheet(file);
+        } else if (isSupportedDocument(type)) {
+            return renderDocument(file, type);
+        }
+        return null;
+    }
+
+    // Images keep their kind (JPG for photos, PNG for graphics); everything else is JPG
+    private String outputFormat(File file, String type) {
+        return type.startsWith("image") && !shouldUseJpeg(file) ? "png" : "jpg";
+    }
+
+    // Detection reads only the file header; results are reused while size and mtime match
+    private String detectMimeType(File file, FileFingerprint fingerprint) throws IOException {
+        FileTypeUtil.DetectedType cached = mimeTypeCache.getIfPresent(file.getAbsolutePath());
+        if (cached != null && cached.fingerprint().sameMetadata(fingerprint)) {
+            return cached.mimeType();
+        }
+        String type = FileTypeUtil.detectMimeType(file);
+        mimeTypeCache.put(file.getAbsolutePath(), new FileTypeUtil.DetectedType(fingerprint, type));
+        return type;
+    }
+
+    private boolean isSpreadsheet(String mimeType) {
+        return mimeType.equals("text/csv") || mimeType.equals("application/vnd.ms-excel")
+                || mimeType
+                        .equals("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
     }
 
     private boolean isSupportedDocument(String mimeType) {
@@ -146,26 +507,28 @@ public class ThumbnailService {
                         "application/vnd.openxmlformats-officedocument.presentationml.presentation");
     }
 
-    private void generateImageThumbnail(File file) throws IOException {
+    private BufferedImage renderImage(File file, String mimeType) throws IOException {
         try {
-            logger.info("Attempting to read image file: {}", file.getAbsolutePath());
-            BufferedImage img = ImageIO.read(file);
+            logger.debug("Attempting to read image file: {}", file.getAbsolutePath());
+            // Decode at (about) the largest output size instead of full resolution, once the
+            // memory that takes (known from the header) is free
+            long estimate =
+                    ImageDecoder.estimateDecodeBytes(file, decodeWidth, decodeHeight, mimeType);
+            MemoryBudget.Lease lease = memoryBudget.acquire(estimate, file.getName());
+            BufferedImage img;
+            try {
+                img = metrics.time(ThumbnailMetrics.Stage.DECODE,
+                        () -> ImageDecoder.decode(file, decodeWidth, decodeHeight, mimeType));
+            } finally {
+                lease.close();
+            }
 
             if (img == null) {
                 throw new IOException("Unreadable image - possibly corrupt or unsupported format");
             }
 
             logger.debug("Original image dimensions: {}x{}", img.getWidth(), img.getHeight());
-
-            // Determine output format based on input (prefer JPG for photos, PNG for graphics)
-            String outputFormat = shouldUseJpeg(file) ? "jpg" : "png";
-
-            // Use the improved saveThumbnail method
-            saveThumbnail(
-                    Thumbnails.of(img).size(THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT).asBufferedImage(),
-                    file, outputFormat);
-
-            logger.info("Successfully generated thumbnail for {}", file.getName());
+            return img;
         } catch (Exception e) {
             logger.error("Failed to generate thumbnail for {}: {}", file.getAbsolutePath(),
                     e.getMessage());
@@ -179,91 +542,150 @@ public class ThumbnailService {
                 || name.endsWith(".tiff") || name.endsWith(".bmp");
     }
 
-    private void generateVideoThumbnail(File videoFile) throws IOException {
-        String output = getThumbnailPath(videoFile, "jpg").toString();
-        ProcessBuilder pb = new ProcessBuilder("ffmpeg", "-i", videoFile.getAbsolutePath(), "-ss",
-                "00:00:01.000", "-vframes", "1", output);
-        pb.inheritIO();
-        try {
-            Process process = pb.start();
-            int exitCode = process.waitFor();
+    private BufferedImage renderVideo(File videoFile) throws IOException {
+        if ("smart".equalsIgnoreCase(videoFrameSelection)) {
+            List<BufferedImage> frames = metrics.time(ThumbnailMetrics.Stage.DECODE,
+                    () -> videoFrameExtractor.sampleFrames(videoFile, videoSampleCount,
+                            videoSampleBudgetMillis, decodeWidth, decodeHeight));
+            if (!frames.isEmpty()) {
+                if (videoStoryboard && frames.size() > 1) {
+                    thumbnailStore.write(videoFile, STORYBOARD_SUFFIX, "jpg", thumbnailEncoder
+                            .encode(FrameAnalysis.storyboard(frames, storyboardTileWidth), "jpg"));
+                }
+                return FrameAnalysis.mostRepresentative(frames);
+            }
+            logger.debug("Could not sample {}, using fixed offset", videoFile.getName());
+        }
+        // Frame arrives scaled to fit the largest output size
+        return metrics.time(ThumbnailMetrics.Stage.DECODE,
+                () -> videoFrameExtractor.extractFrame(videoFile, decodeWidth, decodeHeight));
+    }
 
-            if (exitCode != 0) {
-                throw new IOException("FFmpeg failed with exit code " + exitCode);
+    /**
+     * Deletes thumbnails in a directory whose source file is gone, including renditions,
+     * storyboards and format variants, where the store keeps thumbnails beside their sources.
+     * Returns the number of files deleted.
+     */
+    public int removeOrphanedThumbnails(File dir) {
+        Set<String> recorded = thumbnailCache.recordedSources(dir);
+        int removed = thumbnailStore.removeOrphans(dir, thumbnailSizes(),
+                thumbnailEncoder.extensions(), recorded);
+        // Sources deleted while nothing was watching are dropped from the index afterwards, as
+        // the sweep needs them to recognise their thumbnails
+        for (String name : recorded) {
+            File source = new File(dir, name);
+            if (!source.exists()) {
+                thumbnailCache.invalidate(source);
             }
-            // Verify the thumbnail was created
-            if (!Files.exists(Paths.get(output))) {
-                throw new IOException("FFmpeg didn't create the thumbnail file");
+        }
+        return removed;
+    }
+
+    /**
+     * Deletes every thumbnail of a source file that no longer exists, in all sizes and formats,
+     * and forgets its fingerprint. Returns the number of thumbnails deleted.
+     */
+    public int removeThumbnails(File file) {
+        if (file.exists()) {
+            return 0;
+        }
+        thumbnailCache.invalidate(file);
+        int removed = 0;
+        for (String size : thumbnailSizes()) {
+            for (String format : thumbnailEncoder.extensions()) {
+                try {
+                    if (thumbnailStore.delete(file, size, format)) {
+                        removed++;
+                    }
+                } catch (IOException e) {
+                    logger.warn("Cannot delete thumbnail of {}: {}", file, e.getMessage());
+                }
             }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt(); // Restore the interrupted status
-            throw new IOException("Video thumbnail generation was interrupted", e);
         }
+        return removed;
     }
 
-    private Path getThumbnailPath(File originalFile, String extension) {
-        // Get filename without extension
-        String baseName = originalFile.getName();
-        baseName = baseName.replaceAll("[^a-zA-Z0-9.-]", "_");
-        int dotIndex = baseName.lastIndexOf('.');
-        if (dotIndex > 0) {
-            baseName = baseName.substring(0, dotIndex);
+    // Suffixes of every thumbnail a source can have
+    private List<String> thumbnailSizes() {
+        List<String> sizes = outputSizes.stream().map(Rendition::suffix)
+                .collect(Collectors.toCollection(ArrayList::new));
+        sizes.add(STORYBOARD_SUFFIX);
+        return sizes;
+    }
+
+    // The newer of the JPEG and PNG thumbnail, or null when neither exists
+    private StoredThumbnail existingThumbnail(File originalFile, String suffix) {
+        StoredThumbnail jpg = thumbnailStore.find(originalFile, suffix, "jpg");
+        StoredThumbnail png = thumbnailStore.find(originalFile, suffix, "png");
+        if (jpg == null || png == null) {
+            return jpg != null ? jpg : png;
         }
-        // Construct thumbnail name
-        String thumbName = THUMBNAIL_PREFIX + baseName + "." + extension;
-        return Paths.get(originalFile.getParent(), thumbName);
+        return jpg.lastModified() >= png.lastModified() ? jpg : png;
     }
 
-    private void generatePdfThumbnail(File pdfFile) throws IOException {
-        try (PDDocument document = PDDocument.load(pdfFile)) {
+    private boolean thumbnailExists(File originalFile) {
+        return existingThumbnail(originalFile, "") != null;
+    }
+
+    private BufferedImage renderPdf(File pdfFile) throws IOException {
+        try (PDDocument document = pdfPageRenderer.load(pdfFile)) {
             if (document.isEncrypted()) {
                 // Try empty password first
                 try {
                     document.setAllSecurityToBeRemoved(true);
-                    PDFRenderer renderer = new PDFRenderer(document);
-                    BufferedImage image = renderer.renderImageWithDPI(0, 150);
-                    saveThumbnail(image, pdfFile, "jpg");
+                    return renderPdfFirstPage(document);
                 } catch (Exception e) {
-                    logger.info("Password-protected PDF: ", pdfFile.getName(),
-                            " - generating text preview");
-                    generateTextPreviewThumbnail(pdfFile, extractTextFromPdf(document));
+                    logger.info("Password-protected PDF: {} - generating text preview",
+                            pdfFile.getName());
+                    return createTextPreviewImage(extractTextFromPdf(document));
                 }
-            } else {
-                PDFRenderer renderer = new PDFRenderer(document);
-                BufferedImage image = renderer.renderImageWithDPI(0, 150);
-                saveThumbnail(image, pdfFile, "jpg");
             }
+            return renderPdfFirstPage(document);
         } catch (InvalidPasswordException e) {
-            logger.info("Password-protected PDF: ", pdfFile.getName(),
-                    " - generating text preview");
-            generateTextPreviewThumbnail(pdfFile, "Password Protected\nContent Not Accessible");
+            logger.info("Password-protected PDF: {} - generating text preview", pdfFile.getName());
+            return createTextPreviewImage("Password Protected\nContent Not Accessible");
         }
     }
 
+    private BufferedImage renderPdfFirstPage(PDDocument document) throws IOException {
+        return metrics.time(ThumbnailMetrics.Stage.DECODE,
+                () -> pdfPageRenderer.renderFirstPage(document, decodeWidth, decodeHeight));
+    }
+
     private String extractTextFromPdf(PDDocument document) throws IOException {
         PDFTextStripper stripper = new PDFTextStripper();
         String text = stripper.getText(document);
         return text.length() > 200 ? text.substring(0, 200) + "..." : text;
     }
 
-    private void generateDocumentThumbnail(File documentFile, String mimeType) throws IOException {
+    private BufferedImage renderDocument(File documentFile, String mimeType) throws IOException {
         try {
             BufferedImage image;
 
             if (mimeType.equals(
                     "application/vnd.openxmlformats-officedocument.wordprocessingml.document")) {
-                image = renderDocxToImage(documentFile);
+                image = metrics.time(ThumbnailMetrics.Stage.DECODE,
+                        () -> fastRenderDocumentTypes.contains(mimeType)
+                                ? renderDocxFirstPage(documentFile)
+                                : renderDocxToImage(documentFile));
             } else if (mimeType.equals("application/msword")) {
                 image = renderDocToImage(documentFile);
             } else {
                 throw new IOException("Unsupported document type: " + mimeType);
             }
-
-            saveThumbnail(image, documentFile, "jpg");
+            return image;
         } catch (Exception e) {
             logger.warn("Document rendering failed, falling back to text preview", e);
-            generateTextPreviewThumbnail(documentFile,
-                    extractTextFromDocument(documentFile, mimeType));
+            return createTextPreviewImage(extractTextFromDocument(documentFile, mimeType));
+        }
+    }
+
+    private BufferedImage renderDocxFirstPage(File docxFile) throws IOException {
+        try {
+            return DocxPreviewRenderer.render(docxFile, decodeWidth, decodeHeight);
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Fast DOCX render failed for {}, converting via PDF", docxFile, e);
+            return renderDocxToImage(docxFile);
         }
     }
 
@@ -276,8 +698,7 @@ public class ThumbnailService {
 
             // Render first page of PDF to image
             try (PDDocument pdfDoc = PDDocument.load(pdfOut.toByteArray())) {
-                PDFRenderer renderer = new PDFRenderer(pdfDoc);
-                return renderer.renderImageWithDPI(0, 150);
+                return renderPdfFirstPage(pdfDoc);
             }
         }
     }
@@ -306,8 +727,7 @@ public class ThumbnailService {
     }
 
     private BufferedImage createTextImage(String title, String content) {
-        BufferedImage image =
-                new BufferedImage(THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        BufferedImage image = canvasPool.acquire();
         Graphics2D g = image.createGraphics();
 
         // Setup background
@@ -316,21 +736,20 @@ public class ThumbnailService {
 
         // Draw title
         g.setColor(Color.BLUE);
-        g.setFont(new Font("Arial", Font.BOLD, 14));
+        g.setFont(TITLE_FONT);
         g.drawString(title, 10, 20);
 
         // Draw content
         g.setColor(Color.BLACK);
-        g.setFont(new Font("Arial", Font.PLAIN, 12));
+        g.setFont(BODY_FONT);
         drawWrappedText(g, content, 10, 40, THUMBNAIL_WIDTH - 20);
 
         g.dispose();
         return image;
     }
 
-    private void generateTextPreviewThumbnail(File originalFile, String text) throws IOException {
-        BufferedImage image =
-                new BufferedImage(THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT, BufferedImage.TYPE_INT_RGB);
+    private BufferedImage createTextPreviewImage(String text) {
+        BufferedImage image = canvasPool.acquire();
         Graphics2D graphics = image.createGraphics();
 
         // Set background
@@ -339,13 +758,13 @@ public class ThumbnailService {
 
         // Set text properties
         graphics.setColor(Color.BLACK);
-        graphics.setFont(new Font("Arial", Font.PLAIN, 12));
+        graphics.setFont(BODY_FONT);
 
         // Draw the text with word wrapping
         drawWrappedText(graphics, text, 10, 10, THUMBNAIL_WIDTH - 20);
 
         graphics.dispose();
-        saveThumbnail(image, originalFile, "jpg");
+        return image;
     }
 
     private void drawWrappedText(Graphics2D g, String text, int x, int y, int maxWidth) {
@@ -371,83 +790,30 @@ public class ThumbnailService {
         }
     }
 
-    private void generateExcelThumbnail(File file) throws IOException {
+    // Null when the file cannot be read, so it gets the placeholder
+    private BufferedImage renderSpreadsheet(File file) {
         try {
-            List<String> previewLines;
-            if (file.getName().toLowerCase().endsWith(".csv")) {
-                previewLines = readCsvPreview(file, 3);
-            } else {
-                previewLines = readExcelPreview(file, 3);
-            }
-            BufferedImage image = createDataPreviewImage(file.getName(), previewLines);
-            saveThumbnail(image, file, "jpg");
+            List<String> previewLines = metrics.time(ThumbnailMetrics.Stage.DECODE,
+                    () -> file.getName().toLowerCase().endsWith(".csv")
+                            ? readCsvPreview(file, 3)
+                            : readExcelPreview(file, 3));
+            return createDataPreviewImage(file.getName(), previewLines);
         } catch (Exception e) {
-            generateDefaultThumbnail(file);
+            return null;
         }
     }
 
     private List<String> readExcelPreview(File excelFile, int maxLines) throws IOException {
-        List<String> lines = new ArrayList<>();
-
-        try (FileInputStream fis = new FileInputStream(excelFile);
-                Workbook workbook = WorkbookFactory.create(fis)) {
-
-            Sheet sheet = workbook.getSheetAt(0);
-            // Add header
-            Row headerRow = sheet.getRow(0);
-            if (headerRow != null) {
-                lines.add(getExcelRowAsString(headerRow));
-            }
-
-            // Add data rows
-            for (int i = 1; i <= maxLines && i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-                if (row != null) {
-                    lines.add(getExcelRowAsString(row));
-                }
-            }
-        }
-        return lines;
-    }
-
-    private String getExcelRowAsString(Row row) {
-        StringBuilder sb = new StringBuilder();
-        for (Cell cell : row) {
-            switch (cell.getCellType()) {
-                case STRING -> sb.append(cell.getStringCellValue());
-                case NUMERIC -> sb.append(cell.getNumericCellValue());
-                case BOOLEAN -> sb.append(cell.getBooleanCellValue());
-                case FORMULA -> {
-                    switch (cell.getCachedFormulaResultType()) {
-                        case STRING -> sb.append(cell.getStringCellValue());
-                        case NUMERIC -> sb.append(cell.getNumericCellValue());
-                        case BOOLEAN -> sb.append(cell.getBooleanCellValue());
-                        default -> sb.append(" ");
-                    }
-                }
-                default -> sb.append(" ");
-            }
-        }
-        return cleanCsvLine(sb.toString());
+        // Streaming readers stop after the preview rows, so file size does not matter
+        List<String> lines = FileMagic.valueOf(excelFile) == FileMagic.OLE2
+                ? SpreadsheetPreviewReader.readXls(excelFile, maxLines)
+                : SpreadsheetPreviewReader.readXlsx(excelFile, maxLines);
+        return lines.stream().map(this::cleanCsvLine).collect(Collectors.toList());
     }
 
-    private List<String> readCsvPreview(File csvFile, int maxLines)
-            throws IOException, com.opencsv.exceptions.CsvValidationException {
-        List<String> lines = new ArrayList<>();
-
-        try (CSVReader reader = new CSVReader(new FileReader(csvFile))) {
-            String[] nextLine;
-            int lineCount = 0;
-            try {
-                while ((nextLine = reader.readNext()) != null && lineCount < maxLines) {
-                    lines.add(String.join(", ", nextLine));
-                    lineCount++;
-                }
-            } catch (com.opencsv.exceptions.CsvValidationException e) {
-                throw new IOException("Failed to parse CSV file: " + csvFile.getName(), e);
-            }
-        }
-        return lines.stream().map(this::cleanCsvLine).collect(Collectors.toList());
+    private List<String> readCsvPreview(File csvFile, int maxLines) throws IOException {
+        return SpreadsheetPreviewReader.readCsv(csvFile, maxLines).stream()
+                .map(this::cleanCsvLine).collect(Collectors.toList());
     }
 
     private String cleanCsvLine(String line) {
@@ -465,8 +831,7 @@ public class ThumbnailService {
     }
 
     private BufferedImage createDataPreviewImage(String filename, List<String> lines) {
-        BufferedImage image =
-                new BufferedImage(THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        BufferedImage image = canvasPool.acquire();
         Graphics2D g = image.createGraphics();
 
         // Set anti-aliasing for better text quality
@@ -474,19 +839,19 @@ public class ThumbnailService {
                 RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
 
         // Draw background
-        g.setColor(new Color(240, 240, 240)); // Light gray
+        g.setColor(DATA_BACKGROUND); // Light gray
         g.fillRect(0, 0, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
 
         // Draw header
-        g.setColor(new Color(0, 82, 165)); // Dark blue
+        g.setColor(DATA_HEADER); // Dark blue
         g.fillRect(0, 0, THUMBNAIL_WIDTH, 25);
         g.setColor(Color.WHITE);
-        g.setFont(new Font("Arial", Font.BOLD, 12));
+        g.setFont(HEADER_FONT);
         g.drawString(truncateFilename(filename), 5, 18);
 
         // Draw data rows
         g.setColor(Color.BLACK);
-        g.setFont(new Font("Courier New", Font.PLAIN, 10));
+        g.setFont(DATA_FONT);
 
         int y = 40;
         for (String line : lines) {
@@ -498,7 +863,7 @@ public class ThumbnailService {
 
         // Draw footer
         g.setColor(Color.GRAY);
-        g.setFont(new Font("Arial", Font.PLAIN, 10));
+        g.setFont(FOOTER_FONT);
         g.drawString(lines.size() + " rows shown", 5, THUMBNAIL_HEIGHT - 5);
 
         g.dispose();
@@ -512,10 +877,49 @@ public class ThumbnailService {
         return filename;
     }
 
-    private void generateDefaultThumbnail(File file) throws IOException {
-        // Create an image with file icon and name
-        BufferedImage image =
-                new BufferedImage(THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT, BufferedImage.TYPE_INT_RGB);
+    // Placeholders show only the extension, so every file of a type shares one encoding
+    private Rendered placeholder(Detected source, GenerationOutcome outcome) {
+        String label = placeholderLabel(source.file());
+        try {
+            return new Rendered(source, null, "jpg", outcome,
+                    placeholders.get(label, this::encodePlaceholder));
+        } catch (UncheckedIOException e) {
+            // Not cached, so the next file of this type tries again
+            logger.warn("Cannot encode placeholder for {}: {}", label, e.getMessage());
+            return new Rendered(source, createPlaceholderImage(label), "jpg", outcome);
+        }
+    }
+
+    private List<byte[]> encodePlaceholder(String label) {
+        BufferedImage image = createPlaceholderImage(label);
+        try {
+            List<byte[]> encoded = new ArrayList<>(outputSizes.size());
+            for (BufferedImage output : scaleToOutputSizes(image)) {
+                encoded.add(thumbnailEncoder.encode(output, "jpg"));
+            }
+            return List.copyOf(encoded);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            canvasPool.release(image);
+        }
+    }
+
+    // Upper-case extension, e.g. "ZIP", or "FILE" when there is none
+    private static String placeholderLabel(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        String extension = dot > 0 ? name.substring(dot + 1) : "";
+        extension = extension.replaceAll("[^a-zA-Z0-9]", "").toUpperCase(Locale.ROOT);
+        if (extension.isEmpty()) {
+            return "FILE";
+        }
+        return extension.length() > 6 ? extension.substring(0, 6) : extension;
+    }
+
+    private BufferedImage createPlaceholderImage(String label) {
+        // Create an image with file icon and type
+        BufferedImage image = canvasPool.acquire();
         Graphics2D graphics = image.createGraphics();
 
         // Set background
@@ -526,64 +930,89 @@ public class ThumbnailService {
         graphics.setColor(Color.GRAY);
         graphics.drawRect(0, 0, THUMBNAIL_WIDTH - 1, THUMBNAIL_HEIGHT - 1);
 
-        // Set text properties
-        graphics.setColor(Color.BLACK);
-        graphics.setFont(new Font("Arial", Font.BOLD, 14));
-
         // Draw file icon (simple rectangle)
-        graphics.setColor(new Color(200, 230, 255));
-        graphics.fillRect(THUMBNAIL_WIDTH / 4, THUMBNAIL_HEIGHT / 4, THUMBNAIL_WIDTH / 2,
-                THUMBNAIL_HEIGHT / 3);
+        int iconTop = THUMBNAIL_HEIGHT / 4;
+        int iconHeight = THUMBNAIL_HEIGHT / 3;
+        graphics.setColor(ICON_FILL);
+        graphics.fillRect(THUMBNAIL_WIDTH / 4, iconTop, THUMBNAIL_WIDTH / 2, iconHeight);
         graphics.setColor(Color.BLUE);
-        graphics.drawRect(THUMBNAIL_WIDTH / 4, THUMBNAIL_HEIGHT / 4, THUMBNAIL_WIDTH / 2,
-                THUMBNAIL_HEIGHT / 3);
+        graphics.drawRect(THUMBNAIL_WIDTH / 4, iconTop, THUMBNAIL_WIDTH / 2, iconHeight);
 
-        // Draw file name (truncated if needed)
-        String name = file.getName();
+        // Draw the file type inside the icon
+        graphics.setFont(LABEL_FONT);
         FontMetrics metrics = graphics.getFontMetrics();
-        if (metrics.stringWidth(name) > THUMBNAIL_WIDTH - 20) {
-            while (metrics.stringWidth(name + "...") > THUMBNAIL_WIDTH - 20 && name.length() > 3) {
-                name = name.substring(0, name.length() - 1);
-            }
-            name = name + "...";
-        }
-        graphics.drawString(name, (THUMBNAIL_WIDTH - metrics.stringWidth(name)) / 2,
-                THUMBNAIL_HEIGHT * 3 / 4);
-        // Draw "No Preview" text
-        graphics.setFont(new Font("Arial", Font.ITALIC, 12));
-        String noPreview = DEFAULT_THUMBNAIL_TEXT;
-        int textWidth = metrics.stringWidth(noPreview);
-        graphics.drawString(noPreview, (THUMBNAIL_WIDTH - textWidth) / 2, THUMBNAIL_HEIGHT * 4 / 5);
+        graphics.drawString(label, (THUMBNAIL_WIDTH - metrics.stringWidth(label)) / 2,
+                iconTop + (iconHeight + metrics.getAscent() - metrics.getDescent()) / 2);
+
+        // Draw "No Preview" text, one line at a time
+        graphics.setColor(Color.BLACK);
+        graphics.setFont(NOTE_FONT);
+        metrics = graphics.getFontMetrics();
+        int y = THUMBNAIL_HEIGHT * 3 / 4;
+        for (String line : DEFAULT_THUMBNAIL_TEXT.split("\n")) {
+            graphics.drawString(line, (THUMBNAIL_WIDTH - metrics.stringWidth(line)) / 2, y);
+            y += metrics.getHeight();
+        }
         graphics.dispose();
-        saveThumbnail(image, file, "jpg");
+        return image;
     }
 
-    private void saveThumbnail(BufferedImage image, File originalFile, String format)
-            throws IOException {
-        Path outputPath = getThumbnailPath(originalFile, format);
+    // Scales to the primary size and every rendition, largest first, each downscaled from the
+    // previous output when that still covers it, else from the source
+    private List<BufferedImage> scaleToOutputSizes(BufferedImage image) throws IOException {
+        List<BufferedImage> outputs = new ArrayList<>(outputSizes.size());
+        BufferedImage previous = image;
+        for (Rendition size : outputSizes) {
+            double scale = Math.min(1.0, Math.min((double) size.width() / image.getWidth(),
+                    (double) size.height() / image.getHeight()));
+            int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+            int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+            BufferedImage base = previous.getWidth() >= width && previous.getHeight() >= height
+                    ? previous : image;
+            BufferedImage output = base.getWidth() == width && base.getHeight() == height
+                    ? base
+                    : metrics.time(ThumbnailMetrics.Stage.RESIZE,
+                            () -> Thumbnails.of(base).size(width, height).asBufferedImage());
+            outputs.add(output);
+            previous = output;
+        }
+        return outputs;
+    }
 
-        // Ensure parent directory exists
-        Files.createDirectories(outputPath.getParent());
+    // Writes the outputs of scaleToOutputSizes as the primary thumbnail and its renditions
+    private void writeOutputs(List<BufferedImage> outputs, File originalFile, String format)
+            throws IOException {
+        for (int i = 0; i < outputSizes.size(); i++) {
+            writeThumbnail(outputs.get(i), originalFile, outputSizes.get(i).suffix(), format);
+        }
+    }
 
-        // Try with Thumbnailator first (simpler API)
-        try {
-            Thumbnails.of(image).size(THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT).outputFormat(format)
-                    .toFile(outputPath.toFile());
-            return;
-        } catch (IOException e) {
-            logger.warn("Thumbnailator failed to write image, falling back to ImageIO");
+    // Writes outputs encoded ahead of time, such as shared placeholders, as JPEG thumbnails
+    private void writeEncoded(List<byte[]> encoded, File originalFile) throws IOException {
+        for (int i = 0; i < outputSizes.size(); i++) {
+            String suffix = outputSizes.get(i).suffix();
+            byte[] data = encoded.get(i);
+            metrics.time(ThumbnailMetrics.Stage.WRITE, () -> {
+                thumbnailStore.write(originalFile, suffix, "jpg", data);
+                return null;
+            });
         }
+    }
 
-        // Fallback to ImageIO with explicit format handling
+    private void writeThumbnail(BufferedImage image, File originalFile, String suffix,
+            String format) throws IOException {
         try {
-            if (!ImageIO.write(image, format, outputPath.toFile())) {
-                throw new IOException("No suitable writer found for format: " + format);
-            }
+            byte[] encoded = metrics.time(ThumbnailMetrics.Stage.ENCODE,
+                    () -> thumbnailEncoder.encode(image, format));
+            metrics.time(ThumbnailMetrics.Stage.WRITE, () -> {
+                thumbnailStore.write(originalFile, suffix, format, encoded);
+                return null;
+            });
         } catch (IOException e) {
             // Final fallback - convert to PNG if JPG fails
             if (!format.equalsIgnoreCase("png")) {
                 logger.warn("Failed to write as {}, attempting PNG fallback", format);
-                saveThumbnail(image, originalFile, "png");
+                writeThumbnail(image, originalFile, suffix, "png");
             } else {
                 throw e;
             }
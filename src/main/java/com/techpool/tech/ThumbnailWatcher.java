@@ -0,0 +1,338 @@
+package com.techpool.tech;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps thumbnails of the configured roots current without explicit generate calls. Every
+ * directory below a root is registered with a {@link WatchService}. Created or modified files
+ * are processed once they have been quiet (no events, same size and mtime) for the debounce
+ * period, so uploads still being written are not picked up. Deleted sources lose their
+ * thumbnails. A periodic reconciliation walks the roots through
+ * {@link ThumbnailService#processPath(File)} to recover events the OS dropped on overflow.
+ */
+@Service
+public class ThumbnailWatcher {
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailWatcher.class);
+
+    private final ThumbnailService thumbnailService;
+    private final ThumbnailExecutors executors;
+    private final List<Path> roots;
+    private final long debounceNanos;
+    private final long reconcileIntervalMinutes;
+    private final int maxPending;
+
+    private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+    // Changed files waiting for their writes to settle
+    private final Map<Path, PendingChange> pending = new ConcurrentHashMap<>();
+    // Directories that lost a file since the last flush, and the files they lost
+    private final Set<Path> deletions = ConcurrentHashMap.newKeySet();
+    private final Set<Path> deletedFiles = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean reconciling = new AtomicBoolean();
+    private final AtomicBoolean reconcileRequested = new AtomicBoolean();
+
+    private WatchService watchService;
+    private ScheduledExecutorService scheduler;
+    private Thread watchThread;
+
+    public ThumbnailWatcher(ThumbnailService thumbnailService, ThumbnailExecutors executors,
+            @Value("${thumbnail.watch.roots:}") String roots,
+            @Value("${thumbnail.watch.debounce-ms:2000}") long debounceMillis,
+            @Value("${thumbnail.watch.reconcile-interval-minutes:60}") long reconcileMinutes,
+            @Value("${thumbnail.watch.max-pending:10000}") int maxPending) {
+        this.thumbnailService = thumbnailService;
+        this.executors = executors;
+        this.roots = Arrays.stream(roots.split(",")).map(String::trim)
+                .filter(root -> !root.isEmpty()).map(Path::of).collect(Collectors.toList());
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+        this.reconcileIntervalMinutes = reconcileMinutes;
+        this.maxPending = maxPending;
+    }
+
+    // Last observed state of a changed file; quietSince moves on with every event or change
+    private record PendingChange(long quietSince, long size, long modified) {
+        static PendingChange observe(Path path, long now) {
+            File file = path.toFile();
+            return new PendingChange(now, file.length(), file.lastModified());
+        }
+
+        boolean sameState(PendingChange other) {
+            return size == other.size && modified == other.modified;
+        }
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (roots.isEmpty()) {
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        AtomicInteger counter = new AtomicInteger();
+        scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "thumb-watch-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (Path root : roots) {
+            if (Files.isDirectory(root)) {
+                registerTree(root, false);
+            } else {
+                logger.warn("Watch root {} is not a directory", root);
+            }
+        }
+        watchThread = new Thread(this::watchLoop, "thumb-watch");
+        watchThread.setDaemon(true);
+        watchThread.start();
+
+        long flushMillis = Math.max(50, TimeUnit.NANOSECONDS.toMillis(debounceNanos) / 4);
+        scheduler.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis,
+                TimeUnit.MILLISECONDS);
+        // The first pass catches up on changes made while the application was down
+        if (reconcileIntervalMinutes > 0) {
+            scheduler.scheduleWithFixedDelay(this::requestReconcile, 0, reconcileIntervalMinutes,
+                    TimeUnit.MINUTES);
+        } else {
+            requestReconcile();
+        }
+        logger.info("Watching {} for changes ({} directories)", roots, directories.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (watchService == null) {
+            return;
+        }
+        watchThread.interrupt();
+        scheduler.shutdownNow();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.debug("Failed to close watch service", e);
+        }
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    private void watchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = directories.get(key);
+            if (dir != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    handle(dir, event);
+                }
+            }
+            // Invalid once the directory itself is deleted
+            if (!key.reset()) {
+                directories.remove(key);
+            }
+        }
+    }
+
+    private void handle(Path dir, WatchEvent<?> event) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            logger.warn("Watch events lost in {}, scheduling reconciliation", dir);
+            requestReconcile();
+            return;
+        }
+        Path path = dir.resolve((Path) event.context());
+        if (thumbnailService.isGeneratedFile(path.toFile())) {
+            return;
+        }
+        if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+            pending.remove(path);
+            deletions.add(dir);
+            deletedFiles.add(path);
+        } else if (Files.isDirectory(path)) {
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                // Files may have landed before the new directory was registered
+                registerTree(path, true);
+            }
+        } else {
+            enqueue(path);
+        }
+    }
+
+    private void enqueue(Path path) {
+        if (pending.size() >= maxPending && !pending.containsKey(path)) {
+            logger.warn("More than {} pending changes, scheduling reconciliation", maxPending);
+            requestReconcile();
+            return;
+        }
+        pending.put(path, PendingChange.observe(path, System.nanoTime()));
+    }
+
+    private void registerTree(Path start, boolean enqueueFiles) {
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                        throws IOException {
+                    register(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (enqueueFiles && attrs.isRegularFile()
+                            && !thumbnailService.isGeneratedFile(file.toFile())) {
+                        enqueue(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    logger.debug("Cannot visit {}: {}", file, e.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Cannot watch {}: {}", start, e.getMessage());
+        }
+    }
+
+    // Registering an already watched directory returns its existing key
+    private void register(Path dir) throws IOException {
+        WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        directories.put(key, dir);
+    }
+
+    // Hands settled files to the worker pools and cleans up after deleted sources
+    void flush() {
+        long now = System.nanoTime();
+        for (Map.Entry<Path, PendingChange> entry : pending.entrySet()) {
+            Path path = entry.getKey();
+            PendingChange change = entry.getValue();
+            if (now - change.quietSince() < debounceNanos) {
+                continue;
+            }
+            PendingChange current = PendingChange.observe(path, now);
+            if (!current.sameState(change)) {
+                // Still being written without raising events
+                pending.replace(path, change, current);
+            } else if (pending.remove(path, change) && Files.isRegularFile(path)) {
+                submit(path.toFile());
+            }
+        }
+        for (Path dir : deletions) {
+            deletions.remove(dir);
+            thumbnailService.removeOrphanedThumbnails(dir.toFile());
+        }
+        // Stores outside the source tree cannot be swept by directory
+        for (Path file : deletedFiles) {
+            deletedFiles.remove(file);
+            thumbnailService.removeThumbnails(file.toFile());
+        }
+    }
+
+    private void submit(File file) {
+        try {
+            executors.execute(ThumbnailExecutors.classify(file), () -> {
+                try {
+                    thumbnailService.processPath(file);
+                } catch (RuntimeException e) {
+                    logger.error("Watch processing failed for {}", file, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Dropped change to {}, left for reconciliation", file);
+        }
+    }
+
+    private void requestReconcile() {
+        reconcileRequested.set(true);
+        try {
+            scheduler.execute(this::reconcile);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Watcher stopped, reconciliation skipped");
+        }
+    }
+
+    // Requests arriving during a pass trigger one more pass instead of running concurrently
+    void reconcile() {
+        if (!reconciling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            while (reconcileRequested.getAndSet(false)) {
+                for (Path root : roots) {
+                    reconcile(root);
+                }
+            }
+        } finally {
+            reconciling.set(false);
+        }
+        if (reconcileRequested.get()) {
+            requestReconcile();
+        }
+    }
+
+    private void reconcile(Path root) {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        long start = System.nanoTime();
+        // Picks up directories whose creation events were lost, and orphaned thumbnails
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                        throws IOException {
+                    register(dir);
+                    thumbnailService.removeOrphanedThumbnails(dir.toFile());
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Reconciliation walk of {} failed: {}", root, e.getMessage());
+        }
+        // Incremental generation skips files whose thumbnails are still current
+        thumbnailService.processPath(root.toFile());
+        logger.info("Reconciled {} in {} ms", root,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+}
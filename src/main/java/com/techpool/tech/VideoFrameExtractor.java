@@ -0,0 +1,259 @@
+package com.techpool.tech;
+
+import com.techpool.tech.utils.FFmpegUtil;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Extracts single video frames with ffmpeg. Seeks on the input side, reads the frame as PNG
+ * from ffmpeg's stdout (no temp file), kills processes that exceed the timeout and caps how many
+ * ffmpeg processes run at once. The tail of stderr is kept for error messages; probes keep all
+ * of it, as the duration is printed ahead of per-stream details that can run to many KB.
+ */
+@Component
+public class VideoFrameExtractor {
+    private static final Logger logger = LoggerFactory.getLogger(VideoFrameExtractor.class);
+
+    private static final int STDERR_TAIL_CHARS = 2048;
+    // Bounds a probe's stderr only against runaway output
+    private static final int PROBE_STDERR_CHARS = 1024 * 1024;
+
+    private final String ffmpegPath;
+    private final long timeoutMillis;
+    private final String defaultOffset;
+    private final int maxConcurrent;
+    private final Semaphore permits;
+    private final ScheduledExecutorService watchdog;
+    private final ExecutorService stderrDrainers;
+
+    public VideoFrameExtractor(@Value("${thumbnail.ffmpeg.path:ffmpeg}") String ffmpegPath,
+            @Value("${thumbnail.ffmpeg.timeout-seconds:30}") long timeoutSeconds,
+            @Value("${thumbnail.ffmpeg.max-concurrent:4}") int maxConcurrent,
+            @Value("${thumbnail.video.seek-offset:00:00:01.000}") String defaultOffset) {
+        this.ffmpegPath = ffmpegPath;
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+        this.defaultOffset = defaultOffset;
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ffmpeg-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.stderrDrainers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "ffmpeg-stderr");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public BufferedImage extractFrame(File videoFile, int width, int height) throws IOException {
+        BufferedImage frame = extractFrame(videoFile, defaultOffset, width, height);
+        if (frame == null) {
+            // Clips shorter than the offset produce no frame; fall back to the first one
+            frame = extractFrame(videoFile, "0", width, height);
+        }
+        if (frame == null) {
+            throw new IOException("FFmpeg produced no frame for " + videoFile.getName());
+        }
+        return frame;
+    }
+
+    /**
+     * Extracts the frame at the given offset, scaled to fit width x height.
+     *
+     * @return the frame, or null when ffmpeg exited normally without producing one
+     */
+    public BufferedImage extractFrame(File videoFile, String offset, int width, int height)
+            throws IOException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for an ffmpeg slot", e);
+        }
+        try {
+            return readFrame(videoFile, runFfmpeg(videoFile,
+                    FFmpegUtil.frameToStdoutCommand(ffmpegPath, videoFile, offset, width, height)));
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Grabs up to {@code count} keyframes spread evenly over the video, in time order. Sampling
+     * stops early once {@code budgetMillis} is spent, so a slow file costs at most about one
+     * timeout more than the budget. Holds a single ffmpeg slot for the whole run.
+     *
+     * @return the sampled frames; empty when the duration cannot be determined
+     */
+    public List<BufferedImage> sampleFrames(File videoFile, int count, long budgetMillis, int width,
+            int height) throws IOException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for an ffmpeg slot", e);
+        }
+        try {
+            double duration = FFmpegUtil.parseDurationSeconds(
+                    runFfmpeg(videoFile, FFmpegUtil.probeCommand(ffmpegPath, videoFile),
+                            PROBE_STDERR_CHARS).stderr());
+            List<BufferedImage> frames = new ArrayList<>();
+            if (duration <= 0) {
+                return frames;
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+            for (int i = 1; i <= count && System.nanoTime() < deadline; i++) {
+                // Skip the very start and end, where fades and credits live
+                String offset = String.format(Locale.ROOT, "%.3f", duration * i / (count + 1));
+                try {
+                    BufferedImage frame = readFrame(videoFile, runFfmpeg(videoFile, FFmpegUtil
+                            .frameToStdoutCommand(ffmpegPath, videoFile, offset, width, height,
+                                    true)));
+                    if (frame != null) {
+                        frames.add(frame);
+                    }
+                } catch (IOException e) {
+                    logger.debug("Skipping sample at {}s of {}", offset, videoFile.getName(), e);
+                }
+            }
+            return frames;
+        } finally {
+            permits.release();
+        }
+    }
+
+    // Number of ffmpeg processes currently running
+    public int activeCount() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+        stderrDrainers.shutdownNow();
+    }
+
+    private BufferedImage readFrame(File videoFile, FfmpegResult result) throws IOException {
+        if (result.exitCode() != 0) {
+            throw new IOException("FFmpeg failed with exit code " + result.exitCode() + " for "
+                    + videoFile.getName() + result.stderrSuffix());
+        }
+        if (result.stdout().length == 0) {
+            return null;
+        }
+        BufferedImage frame = ImageIO.read(new ByteArrayInputStream(result.stdout()));
+        if (frame == null) {
+            throw new IOException("FFmpeg output for " + videoFile.getName()
+                    + " is not a readable image");
+        }
+        return frame;
+    }
+
+    private record FfmpegResult(int exitCode, byte[] stdout, String stderr) {
+        String stderrSuffix() {
+            return stderr.isEmpty() ? "" : ": " + stderr;
+        }
+    }
+
+    private FfmpegResult runFfmpeg(File videoFile, List<String> command) throws IOException {
+        return runFfmpeg(videoFile, command, STDERR_TAIL_CHARS);
+    }
+
+    // Throws only on timeout or interruption; callers interpret the exit code. Keeps the last
+    // stderrChars of stderr.
+    private FfmpegResult runFfmpeg(File videoFile, List<String> command, int stderrChars)
+            throws IOException {
+        Process process = new ProcessBuilder(command).start();
+        process.getOutputStream().close();
+        StringBuilder stderr = new StringBuilder();
+        Future<?> stderrDrained = stderrDrainers
+                .submit(() -> drain(process.getErrorStream(), stderr, stderrChars));
+
+        AtomicBoolean timedOut = new AtomicBoolean();
+        ScheduledFuture<?> kill = watchdog.schedule(() -> {
+            timedOut.set(true);
+            // Wrapper scripts may leave children holding stdout open
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            // Returns at EOF, which the watchdog forces by killing a hung process
+            byte[] output = process.getInputStream().readAllBytes();
+            int exitCode = process.waitFor();
+            awaitQuietly(stderrDrained);
+            FfmpegResult result = new FfmpegResult(exitCode, output, stderrTail(stderr));
+            if (timedOut.get()) {
+                throw new IOException("FFmpeg timed out after " + timeoutMillis + " ms for "
+                        + videoFile.getName() + result.stderrSuffix());
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Restore the interrupted status
+            throw new IOException("Video thumbnail generation was interrupted", e);
+        } finally {
+            kill.cancel(false);
+            if (process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static void awaitQuietly(Future<?> future) {
+        try {
+            future.get(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // Diagnostics only; an incomplete stderr tail is fine
+        }
+    }
+
+    private static void drain(InputStream errorStream, StringBuilder tail, int limit) {
+        try (InputStream in = errorStream) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                synchronized (tail) {
+                    tail.append(new String(buffer, 0, read, StandardCharsets.UTF_8));
+                    if (tail.length() > limit) {
+                        tail.delete(0, tail.length() - limit);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Stopped reading ffmpeg stderr", e);
+        }
+    }
+
+    private static String stderrTail(StringBuilder tail) {
+        synchronized (tail) {
+            return tail.toString().trim();
+        }
+    }
+}
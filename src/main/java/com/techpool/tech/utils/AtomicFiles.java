@@ -0,0 +1,33 @@
+package com.techpool.tech.utils;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+public final class AtomicFiles {
+
+    private AtomicFiles() {
+    }
+
+    /** Writes data to a temp file beside target and renames it over target. */
+    public static void write(byte[] data, Path target) throws IOException {
+        // The temp name keeps the target's name as a prefix, so scans that skip thumbnails skip
+        // it too. createFile (unlike createTempFile) applies the default permissions, which the
+        // rename carries over.
+        Path temp = Files.createFile(target.resolveSibling(target.getFileName() + "."
+                + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp"));
+        try {
+            Files.write(temp, data);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
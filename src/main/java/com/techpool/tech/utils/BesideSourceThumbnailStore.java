@@ -0,0 +1,115 @@
+package com.techpool.tech.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Writes {@code thumb_<name><size>.<format>} into the source's own directory. Names are the
+ * source name without its extension and with unusual characters replaced, so sources that
+ * differ only in those share a thumbnail.
+ */
+public class BesideSourceThumbnailStore implements ThumbnailStore {
+    private static final Logger logger = LoggerFactory.getLogger(BesideSourceThumbnailStore.class);
+
+    public static final String PREFIX = "thumb_";
+
+    @Override
+    public StoredThumbnail find(File source, String size, String format) {
+        return StoredThumbnail.ofFile(format, path(source, size, format));
+    }
+
+    @Override
+    public void write(File source, String size, String format, byte[] data) throws IOException {
+        Path target = path(source, size, format);
+        Files.createDirectories(target.getParent());
+        AtomicFiles.write(data, target);
+    }
+
+    // Another source in the directory may own the same name; removeOrphans checks that
+    @Override
+    public boolean delete(File source, String size, String format) {
+        return false;
+    }
+
+    /**
+     * Deletes thumbnails in a directory whose source file is gone, including renditions,
+     * storyboards and format variants. Matching is by name, so a thumbnail shared by sources
+     * that differ only in extension stays while one of them remains. A {@code thumb_} file is
+     * only taken for a thumbnail when its extension is a thumbnail format and it belongs to a
+     * source recorded in the directory's index; other files with the prefix are left alone.
+     */
+    @Override
+    public int removeOrphans(File dir, Collection<String> sizes, Set<String> formats,
+            Set<String> recordedSources) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return 0;
+        }
+        Set<String> owned = new HashSet<>();
+        for (File child : children) {
+            if (child.isFile() && !child.getName().startsWith(PREFIX)) {
+                for (String size : sizes) {
+                    owned.add(stem(child, size));
+                }
+            }
+        }
+        Set<String> generated = new HashSet<>();
+        for (String source : recordedSources) {
+            for (String size : sizes) {
+                generated.add(stem(new File(dir, source), size));
+            }
+        }
+        int removed = 0;
+        for (File child : children) {
+            String name = child.getName();
+            int dot = name.lastIndexOf('.');
+            // Temp files belong to writes still in progress and have no format extension
+            if (!name.startsWith(PREFIX) || dot < 0 || !child.isFile()
+                    || !formats.contains(name.substring(dot + 1))) {
+                continue;
+            }
+            String stem = name.substring(0, dot);
+            if (generated.contains(stem) && !owned.contains(stem)) {
+                try {
+                    if (Files.deleteIfExists(child.toPath())) {
+                        logger.debug("Deleted orphaned thumbnail {}", child);
+                        removed++;
+                    }
+                } catch (IOException e) {
+                    logger.warn("Cannot delete orphaned thumbnail {}: {}", child, e.getMessage());
+                }
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public boolean isStoreFile(File file) {
+        return file.getName().startsWith(PREFIX);
+    }
+
+    private static Path path(File source, String size, String format) {
+        return Paths.get(source.getParent(), stem(source, size) + "." + format);
+    }
+
+    // Thumbnail file name without its extension
+    private static String stem(File source, String size) {
+        // Get filename without extension
+        String baseName = source.getName();
+        baseName = baseName.replaceAll("[^a-zA-Z0-9.-]", "_");
+        int dotIndex = baseName.lastIndexOf('.');
+        if (dotIndex > 0) {
+            baseName = baseName.substring(0, dotIndex);
+        }
+        return PREFIX + baseName + size;
+    }
+}
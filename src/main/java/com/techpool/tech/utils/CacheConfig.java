@@ -1,21 +1,56 @@
 package com.techpool.tech.utils;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class CacheConfig {
 
+    public static final String THUMBNAILS_CACHE = "thumbnails";
+
+    @Value("${thumbnail.cache.max-entries:100000}")
+    private long maxEntries;
+
+    @Value("${thumbnail.cache.max-directories:1024}")
+    private long maxDirectories;
+
+    // Fingerprint of each source file whose thumbnail is current, keyed by absolute path
+    @Bean
+    public Cache<String, FileFingerprint> thumbnailFingerprintCache() {
+        return Caffeine.newBuilder().initialCapacity(100).maximumSize(maxEntries)
+                .expireAfterAccess(10, TimeUnit.MINUTES).recordStats().build();
+    }
+
+    // Parsed per-directory index files, so a directory is read from disk once per scan
+    @Bean
+    public Cache<String, Map<String, FileFingerprint>> thumbnailIndexCache() {
+        return Caffeine.newBuilder().maximumSize(maxDirectories)
+                .expireAfterAccess(10, TimeUnit.MINUTES).recordStats().build();
+    }
+
+    // Detected MIME type per source file by absolute path, reused while its fingerprint matches
+    @Bean
+    public Cache<String, FileTypeUtil.DetectedType> mimeTypeCache() {
+        return Caffeine.newBuilder().maximumSize(maxEntries)
+                .expireAfterAccess(10, TimeUnit.MINUTES).recordStats().build();
+    }
+
+    // The manager only takes untyped caches; ThumbnailCache keeps using the typed view
     @Bean
-    public CacheManager cacheManager() {
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public CacheManager cacheManager(Cache<String, FileFingerprint> thumbnailFingerprintCache) {
         CaffeineCacheManager cacheManager = new CaffeineCacheManager();
         cacheManager.setCaffeine(Caffeine.newBuilder().initialCapacity(100).maximumSize(500)
-                .expireAfterAccess(10, TimeUnit.MINUTES).weakKeys().recordStats());
+                .expireAfterAccess(10, TimeUnit.MINUTES).recordStats());
+        cacheManager.registerCustomCache(THUMBNAILS_CACHE, (Cache) thumbnailFingerprintCache);
         return cacheManager;
     }
 }
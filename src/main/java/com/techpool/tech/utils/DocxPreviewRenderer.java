@@ -0,0 +1,255 @@
+package com.techpool.tech.utils;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.util.XMLHelper;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Draws an approximate first page of a DOCX straight into a Graphics2D. document.xml is read
+ * with StAX and parsing stops as soon as the page is full, so cost depends on the first page
+ * only. Paragraph styles are simplified to headings, bold, font size and alignment; tables,
+ * images and floating content are not drawn.
+ */
+public final class DocxPreviewRenderer {
+    // US Letter in points
+    private static final double PAGE_WIDTH_PT = 612;
+    private static final double PAGE_HEIGHT_PT = 792;
+    private static final double MARGIN_PT = 54;
+    private static final double DEFAULT_FONT_PT = 11;
+
+    private DocxPreviewRenderer() {
+    }
+
+    /** Renders the first page scaled to fit within width x height. */
+    public static BufferedImage render(File docxFile, int width, int height) throws IOException {
+        double scale = Math.min(width / PAGE_WIDTH_PT, height / PAGE_HEIGHT_PT);
+        int pageWidth = Math.max(1, (int) Math.round(PAGE_WIDTH_PT * scale));
+        int pageHeight = Math.max(1, (int) Math.round(PAGE_HEIGHT_PT * scale));
+        BufferedImage image = new BufferedImage(pageWidth, pageHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                    RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            // Body text is only a few pixels high; integer glyph advances smear it together
+            g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS,
+                    RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, pageWidth, pageHeight);
+            g.setColor(Color.BLACK);
+            try (OPCPackage pkg = OPCPackage.open(docxFile, PackageAccess.READ);
+                    InputStream document = mainDocumentPart(pkg).getInputStream()) {
+                new PageLayout(g, scale, pageWidth, pageHeight).layout(document);
+            } catch (InvalidFormatException | XMLStreamException e) {
+                throw new IOException("Failed to read DOCX " + docxFile.getName(), e);
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    private static PackagePart mainDocumentPart(OPCPackage pkg)
+            throws InvalidFormatException, IOException {
+        PackageRelationship relationship = pkg
+                .getRelationshipsByType(PackageRelationshipTypes.CORE_DOCUMENT)
+                .getRelationship(0);
+        if (relationship == null) {
+            throw new IOException("DOCX has no main document part");
+        }
+        return pkg.getPart(relationship);
+    }
+
+    private static final class Paragraph {
+        final StringBuilder text = new StringBuilder();
+        String style;
+        String alignment;
+        boolean bold;
+        double fontPt = DEFAULT_FONT_PT;
+        boolean sized;
+    }
+
+    private static final class PageLayout {
+        private final Graphics2D g;
+        private final double scale;
+        private final int pageWidth;
+        private final int pageHeight;
+        private final int margin;
+        private int y;
+
+        PageLayout(Graphics2D g, double scale, int pageWidth, int pageHeight) {
+            this.g = g;
+            this.scale = scale;
+            this.pageWidth = pageWidth;
+            this.pageHeight = pageHeight;
+            this.margin = (int) Math.round(MARGIN_PT * scale);
+            this.y = margin;
+        }
+
+        void layout(InputStream document) throws XMLStreamException {
+            XMLStreamReader xml = XMLHelper.newXMLInputFactory().createXMLStreamReader(document);
+            try {
+                Paragraph paragraph = null;
+                boolean inRunProperties = false;
+                boolean inRun = false;
+                while (xml.hasNext() && y < pageHeight - margin) {
+                    int event = xml.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        String name = xml.getLocalName();
+                        switch (name) {
+                            case "p" -> paragraph = new Paragraph();
+                            case "r" -> inRun = true;
+                            case "rPr" -> inRunProperties = inRun;
+                            case "pStyle" -> {
+                                if (paragraph != null) {
+                                    paragraph.style = attribute(xml, "val");
+                                }
+                            }
+                            case "jc" -> {
+                                if (paragraph != null && !inRun) {
+                                    paragraph.alignment = attribute(xml, "val");
+                                }
+                            }
+                            case "b" -> {
+                                // Paragraph takes the style of its first formatted run
+                                if (paragraph != null && inRunProperties
+                                        && paragraph.text.length() == 0) {
+                                    String val = attribute(xml, "val");
+                                    paragraph.bold = !"0".equals(val) && !"false".equals(val);
+                                }
+                            }
+                            case "sz" -> {
+                                if (paragraph != null && inRunProperties && !paragraph.sized) {
+                                    String halfPoints = attribute(xml, "val");
+                                    if (halfPoints != null) {
+                                        paragraph.fontPt = Integer.parseInt(halfPoints) / 2.0;
+                                        paragraph.sized = true;
+                                    }
+                                }
+                            }
+                            case "t" -> {
+                                if (paragraph != null) {
+                                    paragraph.text.append(xml.getElementText());
+                                }
+                            }
+                            case "tab" -> {
+                                if (paragraph != null && inRun) {
+                                    paragraph.text.append("    ");
+                                }
+                            }
+                            default -> {
+                            }
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        switch (xml.getLocalName()) {
+                            case "p" -> {
+                                if (paragraph != null) {
+                                    draw(paragraph);
+                                }
+                                paragraph = null;
+                            }
+                            case "r" -> inRun = false;
+                            case "rPr" -> inRunProperties = false;
+                            default -> {
+                            }
+                        }
+                    }
+                }
+            } catch (NumberFormatException e) {
+                throw new XMLStreamException("Invalid font size", e);
+            } finally {
+                xml.close();
+            }
+        }
+
+        private static String attribute(XMLStreamReader xml, String localName) {
+            for (int i = 0; i < xml.getAttributeCount(); i++) {
+                if (xml.getAttributeLocalName(i).equals(localName)) {
+                    return xml.getAttributeValue(i);
+                }
+            }
+            return null;
+        }
+
+        private void draw(Paragraph paragraph) {
+            double fontPt = paragraph.fontPt;
+            boolean bold = paragraph.bold;
+            String style = paragraph.style != null ? paragraph.style.toLowerCase() : "";
+            if (style.equals("title")) {
+                fontPt = Math.max(fontPt, 26);
+                bold = true;
+            } else if (style.startsWith("heading1")) {
+                fontPt = Math.max(fontPt, 16);
+                bold = true;
+            } else if (style.startsWith("heading")) {
+                fontPt = Math.max(fontPt, 13);
+                bold = true;
+            }
+            float fontPx = (float) Math.max(1, fontPt * scale);
+            g.setFont(new Font(Font.SERIF, bold ? Font.BOLD : Font.PLAIN, 1).deriveFont(fontPx));
+            FontMetrics metrics = g.getFontMetrics();
+            int lineHeight = Math.max(1, (int) Math.ceil(metrics.getHeight() * 1.15));
+            int maxWidth = pageWidth - 2 * margin;
+
+            String text = paragraph.text.toString().trim();
+            if (text.isEmpty()) {
+                y += lineHeight;
+                return;
+            }
+            for (String line : wrap(text, metrics, maxWidth)) {
+                if (y + lineHeight > pageHeight - margin) {
+                    y = pageHeight;
+                    return;
+                }
+                int lineWidth = metrics.stringWidth(line);
+                int x = margin;
+                if ("center".equals(paragraph.alignment)) {
+                    x = margin + (maxWidth - lineWidth) / 2;
+                } else if ("right".equals(paragraph.alignment)
+                        || "end".equals(paragraph.alignment)) {
+                    x = margin + maxWidth - lineWidth;
+                }
+                g.drawString(line, x, y + metrics.getAscent());
+                y += lineHeight;
+            }
+            // Space after paragraph
+            y += (int) Math.round(6 * scale);
+        }
+
+        private static List<String> wrap(String text, FontMetrics metrics, int maxWidth) {
+            List<String> lines = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            for (String word : text.split("\\s+")) {
+                String candidate = current.length() == 0 ? word : current + " " + word;
+                if (metrics.stringWidth(candidate) > maxWidth && current.length() > 0) {
+                    lines.add(current.toString());
+                    current = new StringBuilder(word);
+                } else {
+                    current = new StringBuilder(candidate);
+                }
+            }
+            if (current.length() > 0) {
+                lines.add(current.toString());
+            }
+            return lines;
+        }
+    }
+}
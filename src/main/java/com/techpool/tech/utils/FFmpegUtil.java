@@ -1,15 +1,69 @@
 package com.techpool.tech.utils;
 
 import java.io.File;
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class FFmpegUtil {
-    public static void extractThumbnail(File videoFile) throws IOException {
-        String output = videoFile.getParent() + "/thumb_" + videoFile.getName() + ".jpg";
-        ProcessBuilder pb = new ProcessBuilder(
-                "ffmpeg", "-i", videoFile.getAbsolutePath(),
-                "-ss", "00:00:01.000", "-vframes", "1", output);
-        pb.inheritIO();
-        pb.start();
+    private static final Pattern DURATION =
+            Pattern.compile("Duration:\\s*(\\d+):(\\d{2}):(\\d{2}(?:\\.\\d+)?)");
+
+    /**
+     * Builds a command that writes a single PNG frame at the given offset to stdout, scaled down
+     * by ffmpeg to fit within width x height.
+     */
+    public static List<String> frameToStdoutCommand(String ffmpeg, File videoFile, String offset,
+            int width, int height) {
+        return frameToStdoutCommand(ffmpeg, videoFile, offset, width, height, false);
+    }
+
+    /**
+     * Same as {@link #frameToStdoutCommand(String, File, String, int, int)}; with keyframeOnly the
+     * decoder skips non-key frames, so the nearest keyframe is returned without decoding up to
+     * the exact offset.
+     */
+    public static List<String> frameToStdoutCommand(String ffmpeg, File videoFile, String offset,
+            int width, int height, boolean keyframeOnly) {
+        List<String> command = new ArrayList<>();
+        command.add(ffmpeg);
+        command.add("-hide_banner");
+        command.add("-nostdin");
+        command.add("-loglevel");
+        command.add("error");
+        if (keyframeOnly) {
+            command.add("-skip_frame");
+            command.add("nokey");
+        }
+        command.add("-ss");
+        command.add(offset);
+        command.add("-i");
+        command.add(videoFile.getAbsolutePath());
+        command.add("-frames:v");
+        command.add("1");
+        command.add("-vf");
+        command.add("scale=" + width + ":" + height + ":force_original_aspect_ratio=decrease");
+        command.add("-f");
+        command.add("image2pipe");
+        command.add("-vcodec");
+        command.add("png");
+        command.add("-");
+        return command;
+    }
+
+    // Running "ffmpeg -i <file>" with no output prints the container info, including duration
+    public static List<String> probeCommand(String ffmpeg, File videoFile) {
+        return List.of(ffmpeg, "-hide_banner", "-nostdin", "-i", videoFile.getAbsolutePath());
+    }
+
+    /** Parses "Duration: HH:MM:SS.ss" from ffmpeg output; returns -1 when absent. */
+    public static double parseDurationSeconds(String ffmpegOutput) {
+        Matcher matcher = DURATION.matcher(ffmpegOutput);
+        if (!matcher.find()) {
+            return -1;
+        }
+        return Integer.parseInt(matcher.group(1)) * 3600 + Integer.parseInt(matcher.group(2)) * 60
+                + Double.parseDouble(matcher.group(3));
     }
 }
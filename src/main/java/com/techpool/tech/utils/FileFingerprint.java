@@ -0,0 +1,56 @@
+package com.techpool.tech.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Identity of a source file at the time its thumbnail was generated. Size and modification time
+ * are always present; the content hash is optional and only computed when enabled.
+ */
+public record FileFingerprint(long size, long lastModified, String contentHash) {
+
+    public static FileFingerprint of(File file) {
+        return new FileFingerprint(file.length(), file.lastModified(), null);
+    }
+
+    public FileFingerprint withContentHash(String hash) {
+        return new FileFingerprint(size, lastModified, hash);
+    }
+
+    public boolean sameMetadata(FileFingerprint other) {
+        return other != null && size == other.size && lastModified == other.lastModified;
+    }
+
+    /**
+     * Strong HTTP entity tag of a thumbnail generated from this version of the file, where
+     * variant names the thumbnail's size and format. Changes whenever size, modification time
+     * or content hash do.
+     */
+    public String etag(String variant) {
+        String tag = Long.toHexString(size) + "-" + Long.toHexString(lastModified);
+        return "\"" + (contentHash != null ? tag + "-" + contentHash : tag) + "-" + variant
+                + "\"";
+    }
+
+    public static String sha256(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
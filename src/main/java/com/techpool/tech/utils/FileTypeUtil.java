@@ -2,11 +2,79 @@ package com.techpool.tech.utils;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Locale;
 
 import org.apache.tika.Tika;
 
-public class FileTypeUtil {
+/**
+ * MIME type detection from the first bytes of a file. Common types whose extension agrees with
+ * their magic bytes are recognised directly; everything else goes to a single shared Tika
+ * instance (its detector is thread-safe, and building one reloads the MIME registry).
+ */
+public final class FileTypeUtil {
+    // Enough for every magic pattern Tika checks on the formats handled here
+    public static final int HEADER_BYTES = 8192;
+
+    private static final Tika TIKA = new Tika();
+
+    private static final byte[] JPEG_MAGIC = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private static final byte[] PNG_MAGIC = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] PDF_MAGIC = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ZIP_MAGIC = {'P', 'K', 3, 4};
+    private static final String OOXML = "application/vnd.openxmlformats-officedocument.";
+
+    private FileTypeUtil() {
+    }
+
+    /** A detection result together with the state of the file it was made for. */
+    public record DetectedType(FileFingerprint fingerprint, String mimeType) {
+    }
+
     public static String detectMimeType(File file) throws IOException {
-        return new Tika().detect(file);
+        return detectMimeType(file.getName(), readHeader(file));
+    }
+
+    /** Detects the type from the file name and its leading bytes as read by readHeader. */
+    public static String detectMimeType(String fileName, byte[] header) {
+        String type = fromExtensionAndMagic(fileName, header);
+        return type != null ? type : TIKA.detect(header, fileName);
+    }
+
+    /** Reads up to HEADER_BYTES from the start of the file. */
+    public static byte[] readHeader(File file) throws IOException {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return in.readNBytes(HEADER_BYTES);
+        }
+    }
+
+    private static String fromExtensionAndMagic(String fileName, byte[] header) {
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot >= 0 ? fileName.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+        switch (extension) {
+            case "jpg":
+            case "jpeg":
+                return startsWith(header, JPEG_MAGIC) ? "image/jpeg" : null;
+            case "png":
+                return startsWith(header, PNG_MAGIC) ? "image/png" : null;
+            case "pdf":
+                return startsWith(header, PDF_MAGIC) ? "application/pdf" : null;
+            case "docx":
+                return startsWith(header, ZIP_MAGIC) ? OOXML + "wordprocessingml.document" : null;
+            case "xlsx":
+                return startsWith(header, ZIP_MAGIC) ? OOXML + "spreadsheetml.sheet" : null;
+            case "pptx":
+                return startsWith(header, ZIP_MAGIC) ? OOXML + "presentationml.presentation" : null;
+            default:
+                return null;
+        }
+    }
+
+    private static boolean startsWith(byte[] header, byte[] magic) {
+        return header.length >= magic.length
+                && Arrays.equals(header, 0, magic.length, magic, 0, magic.length);
     }
 }
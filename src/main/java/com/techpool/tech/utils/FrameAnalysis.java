@@ -0,0 +1,95 @@
+package com.techpool.tech.utils;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+/**
+ * Cheap in-process heuristics for picking a representative video frame, and storyboard
+ * composition for scrubbing previews.
+ */
+public final class FrameAnalysis {
+    // Frames are scored on a small copy; detail beyond this does not change the ranking
+    private static final int SAMPLE_SIZE = 64;
+
+    private FrameAnalysis() {
+    }
+
+    /**
+     * Scores how much a frame shows: histogram entropy (0-8 bits) plus luminance spread. Nearly
+     * black or white frames such as fades are heavily penalised.
+     */
+    public static double score(BufferedImage frame) {
+        BufferedImage sample = new BufferedImage(SAMPLE_SIZE, SAMPLE_SIZE,
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = sample.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(frame, 0, 0, SAMPLE_SIZE, SAMPLE_SIZE, null);
+        g.dispose();
+
+        int[] histogram = new int[256];
+        double sum = 0;
+        double sumSquares = 0;
+        int pixels = SAMPLE_SIZE * SAMPLE_SIZE;
+        for (int rgb : sample.getRGB(0, 0, SAMPLE_SIZE, SAMPLE_SIZE, null, 0, SAMPLE_SIZE)) {
+            int r = (rgb >> 16) & 0xFF;
+            int gr = (rgb >> 8) & 0xFF;
+            int b = rgb & 0xFF;
+            int luma = (299 * r + 587 * gr + 114 * b) / 1000;
+            histogram[luma]++;
+            sum += luma;
+            sumSquares += luma * luma;
+        }
+        double mean = sum / pixels;
+        double stdDev = Math.sqrt(Math.max(0, sumSquares / pixels - mean * mean));
+        double entropy = 0;
+        for (int count : histogram) {
+            if (count > 0) {
+                double p = (double) count / pixels;
+                entropy -= p * (Math.log(p) / Math.log(2));
+            }
+        }
+        double score = entropy + stdDev / 32;
+        if (mean < 16 || mean > 240) {
+            score *= 0.25;
+        }
+        return score;
+    }
+
+    public static BufferedImage mostRepresentative(List<BufferedImage> frames) {
+        BufferedImage best = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (BufferedImage frame : frames) {
+            double score = score(frame);
+            if (score > bestScore) {
+                best = frame;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /** Lays the frames out in a near-square grid of tiles tileWidth pixels wide. */
+    public static BufferedImage storyboard(List<BufferedImage> frames, int tileWidth) {
+        BufferedImage first = frames.get(0);
+        int tileHeight = Math.max(1, tileWidth * first.getHeight() / first.getWidth());
+        int columns = (int) Math.ceil(Math.sqrt(frames.size()));
+        int rows = (frames.size() + columns - 1) / columns;
+        BufferedImage sheet = new BufferedImage(columns * tileWidth, rows * tileHeight,
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = sheet.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, sheet.getWidth(), sheet.getHeight());
+        for (int i = 0; i < frames.size(); i++) {
+            g.drawImage(frames.get(i), (i % columns) * tileWidth, (i / columns) * tileHeight,
+                    tileWidth, tileHeight, null);
+        }
+        g.dispose();
+        return sheet;
+    }
+}
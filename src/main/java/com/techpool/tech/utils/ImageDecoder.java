@@ -0,0 +1,227 @@
+package com.techpool.tech.utils;
+
+import com.twelvemonkeys.imageio.metadata.Directory;
+import com.twelvemonkeys.imageio.metadata.Entry;
+import com.twelvemonkeys.imageio.metadata.jpeg.JPEG;
+import com.twelvemonkeys.imageio.metadata.jpeg.JPEGSegment;
+import com.twelvemonkeys.imageio.metadata.jpeg.JPEGSegmentUtil;
+import com.twelvemonkeys.imageio.metadata.tiff.TIFF;
+import com.twelvemonkeys.imageio.metadata.tiff.TIFFReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Decodes images at roughly the size they will be displayed rather than at full resolution.
+ * Uses a large-enough embedded EXIF/TIFF thumbnail when present, otherwise reads only the first
+ * image with source subsampling, so peak memory follows the target size. EXIF orientation is
+ * applied to the result.
+ */
+public final class ImageDecoder {
+    private static final Logger logger = LoggerFactory.getLogger(ImageDecoder.class);
+
+    private ImageDecoder() {
+    }
+
+    /**
+     * Decodes the first image in the file so that it still covers a box of the given size.
+     *
+     * @return the decoded image, or null when no ImageIO reader understands the file
+     */
+    public static BufferedImage decode(File file, int targetWidth, int targetHeight)
+            throws IOException {
+        return decode(file, targetWidth, targetHeight, null);
+    }
+
+    /**
+     * Same as {@link #decode(File, int, int)}, but picks the reader registered for an already
+     * detected MIME type instead of probing every installed reader against the stream.
+     */
+    public static BufferedImage decode(File file, int targetWidth, int targetHeight,
+            String mimeType) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            if (input == null) {
+                throw new IOException("Cannot open image stream for " + file.getName());
+            }
+            ImageReader reader = reader(input, mimeType);
+            if (reader == null) {
+                return null;
+            }
+            try {
+                int orientation = readOrientation(input, reader.getFormatName());
+                input.seek(0);
+                reader.setInput(input);
+
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                // Orientations 5-8 swap the axes once the image is rotated upright
+                boolean swapAxes = orientation >= 5 && orientation <= 8;
+                int boxWidth = swapAxes ? targetHeight : targetWidth;
+                int boxHeight = swapAxes ? targetWidth : targetHeight;
+                double scale = Math.min(1.0,
+                        Math.min((double) boxWidth / width, (double) boxHeight / height));
+                int neededWidth = Math.max(1, (int) Math.ceil(width * scale));
+                int neededHeight = Math.max(1, (int) Math.ceil(height * scale));
+
+                BufferedImage image =
+                        readEmbeddedThumbnail(reader, width, height, neededWidth, neededHeight);
+                if (image == null) {
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    int factor = Math.max(1,
+                            Math.min(width / neededWidth, height / neededHeight));
+                    if (factor > 1) {
+                        param.setSourceSubsampling(factor, factor, 0, 0);
+                    }
+                    logger.debug("Decoding {} ({}x{}) with subsampling {}", file.getName(), width,
+                            height, factor);
+                    image = reader.read(0, param);
+                }
+                return applyOrientation(image, orientation);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Estimates the heap a {@link #decode} of the file needs, from the dimensions in its
+     * header: the subsampled raster (counted twice, for the oriented or converted copy) plus a
+     * few full-width source rows. Returns 0 when no reader understands the file, which decode
+     * then fails on without allocating.
+     */
+    public static long estimateDecodeBytes(File file, int targetWidth, int targetHeight,
+            String mimeType) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            if (input == null) {
+                throw new IOException("Cannot open image stream for " + file.getName());
+            }
+            ImageReader reader = reader(input, mimeType);
+            if (reader == null) {
+                return 0;
+            }
+            try {
+                reader.setInput(input);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                // Same subsampling as decode, ignoring orientation
+                double scale = Math.min(1.0, Math.min((double) targetWidth / width,
+                        (double) targetHeight / height));
+                int neededWidth = Math.max(1, (int) Math.ceil(width * scale));
+                int neededHeight = Math.max(1, (int) Math.ceil(height * scale));
+                int factor = Math.max(1, Math.min(width / neededWidth, height / neededHeight));
+                long raster = (long) ((width + factor - 1) / factor)
+                        * ((height + factor - 1) / factor);
+                return raster * 4 * 2 + (long) width * 4 * 8;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // The reader registered for the MIME type, else the first that accepts the stream
+    private static ImageReader reader(ImageInputStream input, String mimeType) {
+        Iterator<ImageReader> readers = mimeType != null
+                ? ImageIO.getImageReadersByMIMEType(mimeType) : Collections.emptyIterator();
+        if (!readers.hasNext()) {
+            readers = ImageIO.getImageReaders(input);
+        }
+        return readers.hasNext() ? readers.next() : null;
+    }
+
+    // Smallest embedded thumbnail that covers the needed size with the same aspect ratio
+    private static BufferedImage readEmbeddedThumbnail(ImageReader reader, int width, int height,
+            int neededWidth, int neededHeight) {
+        try {
+            if (!reader.readerSupportsThumbnails() || !reader.hasThumbnails(0)) {
+                return null;
+            }
+            int best = -1;
+            long bestArea = Long.MAX_VALUE;
+            for (int i = 0; i < reader.getNumThumbnails(0); i++) {
+                int thumbWidth = reader.getThumbnailWidth(0, i);
+                int thumbHeight = reader.getThumbnailHeight(0, i);
+                double aspectDelta = Math.abs((double) thumbWidth / thumbHeight
+                        - (double) width / height);
+                long area = (long) thumbWidth * thumbHeight;
+                if (thumbWidth >= neededWidth && thumbHeight >= neededHeight
+                        && aspectDelta < 0.02 && area < bestArea) {
+                    best = i;
+                    bestArea = area;
+                }
+            }
+            return best >= 0 ? reader.readThumbnail(0, best) : null;
+        } catch (IOException | RuntimeException e) {
+            // Broken thumbnails are common; the main image is still usable
+            logger.debug("Ignoring unreadable embedded thumbnail", e);
+            return null;
+        }
+    }
+
+    private static int readOrientation(ImageInputStream input, String formatName) {
+        String format = formatName.toLowerCase(Locale.ROOT);
+        try {
+            Directory directory = null;
+            if (format.equals("jpeg") || format.equals("jpg")) {
+                List<JPEGSegment> segments =
+                        JPEGSegmentUtil.readSegments(input, JPEG.APP1, "Exif");
+                if (!segments.isEmpty()) {
+                    InputStream data = segments.get(0).data();
+                    // Skip the pad byte after the "Exif\0" identifier
+                    data.read();
+                    try (ImageInputStream exif = ImageIO.createImageInputStream(data)) {
+                        directory = new TIFFReader().read(exif);
+                    }
+                }
+            } else if (format.equals("tiff") || format.equals("tif")) {
+                directory = new TIFFReader().read(input);
+            }
+            Entry entry = directory != null ? directory.getEntryById(TIFF.TAG_ORIENTATION) : null;
+            if (entry != null && entry.getValue() instanceof Number number) {
+                return number.intValue();
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Could not read orientation metadata", e);
+        }
+        return 1;
+    }
+
+    private static BufferedImage applyOrientation(BufferedImage image, int orientation) {
+        if (orientation <= 1 || orientation > 8) {
+            return image;
+        }
+        int w = image.getWidth();
+        int h = image.getHeight();
+        AffineTransform transform = switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, w, 0); // mirror horizontal
+            case 3 -> new AffineTransform(-1, 0, 0, -1, w, h); // rotate 180
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, h); // mirror vertical
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0); // transpose
+            case 6 -> new AffineTransform(0, 1, -1, 0, h, 0); // rotate 90 clockwise
+            case 7 -> new AffineTransform(0, -1, -1, 0, h, w); // transverse
+            default -> new AffineTransform(0, -1, 1, 0, 0, w); // rotate 270 clockwise
+        };
+        boolean swapAxes = orientation >= 5;
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB
+                : BufferedImage.TYPE_INT_RGB;
+        BufferedImage oriented =
+                new BufferedImage(swapAxes ? h : w, swapAxes ? w : h, type);
+        Graphics2D g = oriented.createGraphics();
+        g.drawImage(image, transform, null);
+        g.dispose();
+        return oriented;
+    }
+}
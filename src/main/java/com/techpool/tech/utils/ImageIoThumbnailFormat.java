@@ -0,0 +1,71 @@
+package com.techpool.tech.utils;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Base for formats backed by an ImageIO writer. The writer is looked up once per thread and
+ * reused across images; one that fails mid-write is disposed and replaced on the next call.
+ */
+public abstract class ImageIoThumbnailFormat implements ThumbnailFormat {
+
+    private final String writerFormatName;
+    private final ThreadLocal<ImageWriter> writers = new ThreadLocal<>();
+
+    protected ImageIoThumbnailFormat(String writerFormatName) {
+        this.writerFormatName = writerFormatName;
+    }
+
+    @Override
+    public void write(BufferedImage image, ImageOutputStream out) throws IOException {
+        ImageWriter writer = writer();
+        try {
+            BufferedImage prepared = prepare(image);
+            ImageWriteParam param = writeParam(writer);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(prepared, null, metadata(writer, prepared, param)),
+                    param);
+            writer.reset();
+        } catch (IOException | RuntimeException e) {
+            writers.remove();
+            writer.dispose();
+            throw e;
+        }
+    }
+
+    /** Converts the image to a type the writer accepts; returns it unchanged by default. */
+    protected BufferedImage prepare(BufferedImage image) {
+        return image;
+    }
+
+    protected ImageWriteParam writeParam(ImageWriter writer) {
+        return writer.getDefaultWriteParam();
+    }
+
+    /** Image metadata to write, or null for the writer's default. */
+    protected IIOMetadata metadata(ImageWriter writer, BufferedImage image,
+            ImageWriteParam param) throws IOException {
+        return null;
+    }
+
+    private ImageWriter writer() throws IOException {
+        ImageWriter writer = writers.get();
+        if (writer == null) {
+            Iterator<ImageWriter> candidates =
+                    ImageIO.getImageWritersByFormatName(writerFormatName);
+            if (!candidates.hasNext()) {
+                throw new IOException("No suitable writer found for format: " + writerFormatName);
+            }
+            writer = candidates.next();
+            writers.set(writer);
+        }
+        return writer;
+    }
+}
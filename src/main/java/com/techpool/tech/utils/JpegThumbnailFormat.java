@@ -0,0 +1,93 @@
+package com.techpool.tech.utils;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/** Baseline or progressive JPEG with configurable quality and chroma subsampling. */
+public class JpegThumbnailFormat extends ImageIoThumbnailFormat {
+    private static final String JPEG_METADATA_FORMAT = "javax_imageio_jpeg_image_1.0";
+
+    private final float quality;
+    private final boolean progressive;
+    // false keeps the writer's default 2x2 (4:2:0) chroma subsampling
+    private final boolean fullChroma;
+
+    public JpegThumbnailFormat(float quality, boolean progressive, boolean fullChroma) {
+        super("jpg");
+        this.quality = quality;
+        this.progressive = progressive;
+        this.fullChroma = fullChroma;
+    }
+
+    @Override
+    public String name() {
+        return "jpg";
+    }
+
+    @Override
+    public String extension() {
+        return "jpg";
+    }
+
+    @Override
+    public String mediaType() {
+        return "image/jpeg";
+    }
+
+    // JPEG has no alpha channel; transparent areas are flattened onto white
+    @Override
+    protected BufferedImage prepare(BufferedImage image) {
+        if (!image.getColorModel().hasAlpha()) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(),
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, rgb.getWidth(), rgb.getHeight());
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return rgb;
+    }
+
+    @Override
+    protected ImageWriteParam writeParam(ImageWriter writer) {
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+        if (progressive) {
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+        }
+        return param;
+    }
+
+    // Sets every component's sampling factor to 1x1 in the SOF marker
+    @Override
+    protected IIOMetadata metadata(ImageWriter writer, BufferedImage image,
+            ImageWriteParam param) throws IOException {
+        if (!fullChroma) {
+            return null;
+        }
+        IIOMetadata metadata =
+                writer.getDefaultImageMetadata(new ImageTypeSpecifier(image), param);
+        Node tree = metadata.getAsTree(JPEG_METADATA_FORMAT);
+        NodeList components = ((Element) tree).getElementsByTagName("componentSpec");
+        for (int i = 0; i < components.getLength(); i++) {
+            Element component = (Element) components.item(i);
+            component.setAttribute("HsamplingFactor", "1");
+            component.setAttribute("VsamplingFactor", "1");
+        }
+        metadata.setFromTree(JPEG_METADATA_FORMAT, tree);
+        return metadata;
+    }
+}
@@ -0,0 +1,24 @@
+package com.techpool.tech.utils;
+
+/** Lossless PNG, used for graphics and as the fallback when another format fails. */
+public class PngThumbnailFormat extends ImageIoThumbnailFormat {
+
+    public PngThumbnailFormat() {
+        super("png");
+    }
+
+    @Override
+    public String name() {
+        return "png";
+    }
+
+    @Override
+    public String extension() {
+        return "png";
+    }
+
+    @Override
+    public String mediaType() {
+        return "image/png";
+    }
+}
@@ -0,0 +1,55 @@
+package com.techpool.tech.utils;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reusable RGB canvases of one size for previews drawn from scratch (text, data and placeholder
+ * images), so each file does not allocate a fresh raster. A canvas is acquired when drawing
+ * starts and released once nothing reads it any more; it still holds its previous drawing, so
+ * callers must paint every pixel. At most {@code capacity} idle canvases are kept and an empty
+ * pool allocates, so a canvas that is never released is merely garbage collected.
+ */
+public final class RasterPool {
+
+    private final int width;
+    private final int height;
+    private final BlockingQueue<BufferedImage> idle;
+    private final LongAdder allocated = new LongAdder();
+
+    public RasterPool(int width, int height, int capacity) {
+        this.width = width;
+        this.height = height;
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    public BufferedImage acquire() {
+        BufferedImage image = idle.poll();
+        if (image == null) {
+            allocated.increment();
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
+        return image;
+    }
+
+    /**
+     * Returns a canvas for reuse. Images of another size or type are ignored, so any image may
+     * be passed; the caller must not touch the image afterwards.
+     */
+    public void release(BufferedImage image) {
+        if (image != null && image.getWidth() == width && image.getHeight() == height
+                && image.getType() == BufferedImage.TYPE_INT_RGB) {
+            idle.offer(image);
+        }
+    }
+
+    public int idleCount() {
+        return idle.size();
+    }
+
+    public long allocatedCount() {
+        return allocated.sum();
+    }
+}
@@ -0,0 +1,314 @@
+package com.techpool.tech.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Packs thumbnails into append-only segment files under one root, for trees with millions of
+ * small thumbnails where a file apiece would cost as many inodes. A memory-mapped open-addressing
+ * hash table (the {@code index} file) maps a 128-bit hash of source path, size and format to the
+ * segment, offset and length of the bytes, so a lookup reads a slot or two of mapped memory and
+ * no file system metadata. The table doubles when it is 70% full.
+ *
+ * <p>Replaced and deleted thumbnails leave their old bytes in the segments; that space is not
+ * reclaimed. Slots pointing past the end of a segment, as a crash can leave them, are dropped
+ * when the store is opened. Freshness indexes of source directories are kept under
+ * {@code indexes/}, as in {@link ShardedThumbnailStore}.
+ */
+public class SegmentThumbnailStore implements ThumbnailStore {
+    private static final Logger logger = LoggerFactory.getLogger(SegmentThumbnailStore.class);
+
+    private static final int MAGIC = 0x54485347;
+    // Magic, capacity, slots in use
+    private static final int HEADER_BYTES = 16;
+    // Key (two longs), segment, length, offset, modified
+    private static final int SLOT_BYTES = 40;
+    private static final int DELETED = -1;
+    private static final String INDEX_FILE = "index";
+
+    private final Path root;
+    private final long segmentBytes;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int capacity;
+    // Slots holding a key, deleted ones included: they stay as probe tombstones
+    private int used;
+    private int segmentId;
+    private FileChannel segment;
+
+    public SegmentThumbnailStore(Path root, long segmentBytes, int initialCapacity)
+            throws IOException {
+        this.root = Files.createDirectories(root.toAbsolutePath().normalize());
+        this.segmentBytes = segmentBytes;
+        Path indexPath = this.root.resolve(INDEX_FILE);
+        if (!openIndex(indexPath)) {
+            int slots = Integer.highestOneBit(Math.max(16, initialCapacity - 1)) << 1;
+            createIndex(indexPath, slots, null, 0);
+        }
+        dropTruncatedSlots();
+        if (segmentId > 0) {
+            segment = FileChannel.open(segmentPath(segmentId), StandardOpenOption.WRITE);
+        }
+    }
+
+    @Override
+    public StoredThumbnail find(File source, String size, String format) {
+        long[] key = key(source, size, format);
+        lock.readLock().lock();
+        try {
+            int slot = probe(index, capacity, key[0], key[1]);
+            if (slot < 0 || index.getInt(position(slot) + 16) == DELETED) {
+                return null;
+            }
+            int base = position(slot);
+            return new StoredThumbnail(format, segmentPath(index.getInt(base + 16)),
+                    index.getLong(base + 24), index.getInt(base + 20), index.getLong(base + 32));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void write(File source, String size, String format, byte[] data) throws IOException {
+        long[] key = key(source, size, format);
+        lock.writeLock().lock();
+        try {
+            // Bytes first, so a slot never points at data that is not there yet
+            if (segment == null
+                    || segment.size() > 0 && segment.size() + data.length > segmentBytes) {
+                rollSegment();
+            }
+            long offset = segment.size();
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                segment.write(buffer, offset + buffer.position());
+            }
+            int slot = probe(index, capacity, key[0], key[1]);
+            if (slot < 0 && (used + 1) * 10L > capacity * 7L) {
+                grow();
+                slot = probe(index, capacity, key[0], key[1]);
+            }
+            if (slot < 0) {
+                slot = -slot - 1;
+                used++;
+                index.putInt(8, used);
+            }
+            putSlot(index, slot, key, segmentId, data.length, offset, System.currentTimeMillis());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean delete(File source, String size, String format) {
+        long[] key = key(source, size, format);
+        lock.writeLock().lock();
+        try {
+            int slot = probe(index, capacity, key[0], key[1]);
+            if (slot < 0 || index.getInt(position(slot) + 16) == DELETED) {
+                return false;
+            }
+            index.putInt(position(slot) + 16, DELETED);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Path indexFile(File sourceDir) {
+        return ShardedThumbnailStore.indexFile(root, sourceDir);
+    }
+
+    @Override
+    public boolean isStoreFile(File file) {
+        return file.toPath().toAbsolutePath().normalize().startsWith(root);
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            index.force();
+            indexChannel.close();
+            if (segment != null) {
+                segment.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    private boolean openIndex(Path indexPath) throws IOException {
+        if (!Files.isRegularFile(indexPath) || Files.size(indexPath) < HEADER_BYTES) {
+            return false;
+        }
+        FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        int slots = mapped.getInt(4);
+        if (mapped.getInt(0) != MAGIC || Integer.bitCount(slots) != 1
+                || channel.size() != HEADER_BYTES + (long) slots * SLOT_BYTES) {
+            logger.warn("Thumbnail index {} is damaged, starting a new one", indexPath);
+            channel.close();
+            return false;
+        }
+        indexChannel = channel;
+        index = mapped;
+        capacity = slots;
+        used = mapped.getInt(8);
+        return true;
+    }
+
+    // Builds the table in a temp file, copying live slots of from, then renames it into place
+    private void createIndex(Path indexPath, int slots, MappedByteBuffer from, int fromSlots)
+            throws IOException {
+        Path temp = indexPath.resolveSibling(INDEX_FILE + ".tmp");
+        Files.deleteIfExists(temp);
+        FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                HEADER_BYTES + (long) slots * SLOT_BYTES);
+        int live = 0;
+        long[] key = new long[2];
+        for (int slot = 0; slot < fromSlots; slot++) {
+            int base = position(slot);
+            key[0] = from.getLong(base);
+            key[1] = from.getLong(base + 8);
+            int segmentOfSlot = from.getInt(base + 16);
+            if ((key[0] == 0 && key[1] == 0) || segmentOfSlot == DELETED) {
+                continue;
+            }
+            int target = -probe(mapped, slots, key[0], key[1]) - 1;
+            putSlot(mapped, target, key, segmentOfSlot, from.getInt(base + 20),
+                    from.getLong(base + 24), from.getLong(base + 32));
+            live++;
+        }
+        mapped.putInt(0, MAGIC);
+        mapped.putInt(4, slots);
+        mapped.putInt(8, live);
+        mapped.force();
+        Files.move(temp, indexPath, StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        if (indexChannel != null) {
+            indexChannel.close();
+        }
+        indexChannel = channel;
+        index = mapped;
+        capacity = slots;
+        used = live;
+    }
+
+    // Rebuilds the table at twice the size; deleted slots are left out
+    private void grow() throws IOException {
+        if (HEADER_BYTES + (long) capacity * 2 * SLOT_BYTES > Integer.MAX_VALUE) {
+            throw new IOException("Thumbnail index is full");
+        }
+        createIndex(root.resolve(INDEX_FILE), capacity * 2, index, capacity);
+        logger.info("Thumbnail index grown to {} slots", capacity);
+    }
+
+    private void rollSegment() throws IOException {
+        if (segment != null) {
+            segment.close();
+        }
+        segmentId++;
+        segment = FileChannel.open(segmentPath(segmentId), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+    }
+
+    // Also finds the newest segment, which later writes append to
+    private void dropTruncatedSlots() throws IOException {
+        Map<Integer, Long> sizes = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(root, "segment-*.dat")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int id = Integer.parseInt(name.substring(8, name.length() - 4));
+                sizes.put(id, Files.size(file));
+                segmentId = Math.max(segmentId, id);
+            }
+        }
+        int dropped = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            int base = position(slot);
+            int segmentOfSlot = index.getInt(base + 16);
+            if ((index.getLong(base) == 0 && index.getLong(base + 8) == 0)
+                    || segmentOfSlot == DELETED) {
+                continue;
+            }
+            Long size = sizes.get(segmentOfSlot);
+            if (size == null || index.getLong(base + 24) + index.getInt(base + 20) > size) {
+                index.putInt(base + 16, DELETED);
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            logger.warn("Dropped {} thumbnail index entries without data", dropped);
+        }
+    }
+
+    private Path segmentPath(int id) {
+        return root.resolve(String.format("segment-%05d.dat", id));
+    }
+
+    // Slot of the key, or -(free slot + 1) where it would go
+    private static int probe(MappedByteBuffer table, int slots, long high, long low) {
+        int slot = (int) (low ^ (low >>> 32)) & (slots - 1);
+        while (true) {
+            int base = position(slot);
+            long slotHigh = table.getLong(base);
+            long slotLow = table.getLong(base + 8);
+            if (slotHigh == high && slotLow == low) {
+                return slot;
+            }
+            if (slotHigh == 0 && slotLow == 0) {
+                return -slot - 1;
+            }
+            slot = (slot + 1) & (slots - 1);
+        }
+    }
+
+    // The key goes in last: a slot is empty until its key is set
+    private static void putSlot(MappedByteBuffer table, int slot, long[] key, int segmentOfSlot,
+            int length, long offset, long modified) {
+        int base = position(slot);
+        table.putInt(base + 16, segmentOfSlot);
+        table.putInt(base + 20, length);
+        table.putLong(base + 24, offset);
+        table.putLong(base + 32, modified);
+        table.putLong(base + 8, key[1]);
+        table.putLong(base, key[0]);
+    }
+
+    private static int position(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    // First 128 bits of SHA-256; the high half is never zero, so no key looks like an empty slot
+    private static long[] key(File source, String size, String format) {
+        ByteBuffer hash = ByteBuffer.wrap(ShardedThumbnailStore.digest(
+                source.toPath().toAbsolutePath().normalize() + "\0" + size + "\0" + format));
+        return new long[] {hash.getLong() | 1, hash.getLong()};
+    }
+}
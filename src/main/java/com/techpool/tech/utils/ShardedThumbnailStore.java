@@ -0,0 +1,78 @@
+package com.techpool.tech.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Keeps thumbnails under one root as {@code ab/cd/<hash><size>.<format>}, where hash is the
+ * SHA-256 of the source's absolute path and its first two bytes name the shard directories.
+ * Source directories stay untouched (and may be read-only), no two sources share a thumbnail,
+ * and the 65536 shard directories keep each directory small even with millions of thumbnails.
+ * Freshness indexes go under {@code indexes/ab/<hash>}, hashing the source directory's path.
+ */
+public class ShardedThumbnailStore implements ThumbnailStore {
+
+    private final Path root;
+
+    public ShardedThumbnailStore(Path root) throws IOException {
+        this.root = Files.createDirectories(root.toAbsolutePath().normalize());
+    }
+
+    @Override
+    public StoredThumbnail find(File source, String size, String format) {
+        return StoredThumbnail.ofFile(format, path(source, size, format));
+    }
+
+    @Override
+    public void write(File source, String size, String format, byte[] data) throws IOException {
+        Path target = path(source, size, format);
+        Files.createDirectories(target.getParent());
+        AtomicFiles.write(data, target);
+    }
+
+    @Override
+    public boolean delete(File source, String size, String format) throws IOException {
+        return Files.deleteIfExists(path(source, size, format));
+    }
+
+    @Override
+    public Path indexFile(File sourceDir) {
+        return indexFile(root, sourceDir);
+    }
+
+    @Override
+    public boolean isStoreFile(File file) {
+        return file.toPath().toAbsolutePath().normalize().startsWith(root);
+    }
+
+    private Path path(File source, String size, String format) {
+        String hash = hash(source);
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4))
+                .resolve(hash + size + "." + format);
+    }
+
+    static Path indexFile(Path root, File sourceDir) {
+        String hash = hash(sourceDir);
+        return root.resolve("indexes").resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    static String hash(File source) {
+        return HexFormat.of().formatHex(digest(source.toPath().toAbsolutePath().normalize()
+                .toString()));
+    }
+
+    static byte[] digest(String key) {
+        try {
+            return MessageDigest.getInstance("SHA-256")
+                    .digest(key.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.techpool.tech.utils;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import org.apache.poi.hssf.eventusermodel.AbortableHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.eventusermodel.HSSFUserException;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads the first rows of a spreadsheet without loading the workbook. XLSX sheets are parsed
+ * with SAX and shared strings are resolved lazily, XLS uses the HSSF record stream, and CSV reads
+ * line by line. Every reader stops as soon as the preview rows are collected, so the cost does
+ * not grow with file size.
+ */
+public final class SpreadsheetPreviewReader {
+
+    private SpreadsheetPreviewReader() {
+    }
+
+    /** Returns row 0 (the header) plus up to maxRows following rows, cells joined by ", ". */
+    public static List<String> readXlsx(File file, int maxRows) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return new ArrayList<>();
+            }
+            RowCollector rows = new RowCollector(maxRows);
+            try (InputStream sheet = sheets.next();
+                    LazySharedStrings strings = new LazySharedStrings(sharedStringsData(reader))) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(), strings,
+                        new XlsxRowHandler(rows), false));
+                parser.parse(new InputSource(sheet));
+            } catch (StopParsing e) {
+                // Preview complete
+            }
+            return rows.lines();
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Failed to read spreadsheet " + file.getName(), e);
+        }
+    }
+
+    /** Same contract as {@link #readXlsx(File, int)} for the legacy binary format. */
+    public static List<String> readXls(File file, int maxRows) throws IOException {
+        try (POIFSFileSystem fs = new POIFSFileSystem(file, true)) {
+            XlsListener listener = new XlsListener(new RowCollector(maxRows));
+            HSSFRequest request = new HSSFRequest();
+            request.addListenerForAllRecords(listener);
+            try {
+                new HSSFEventFactory().abortableProcessWorkbookEvents(request, fs);
+            } catch (HSSFUserException e) {
+                throw new IOException("Failed to read spreadsheet " + file.getName(), e);
+            }
+            return listener.rows.lines();
+        }
+    }
+
+    /** Returns the first maxLines records, fields joined by ", ". */
+    public static List<String> readCsv(File file, int maxLines) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (CSVReader reader = new CSVReader(new FileReader(file))) {
+            String[] nextLine;
+            // Check the count first so no record beyond the preview is parsed
+            while (lines.size() < maxLines && (nextLine = reader.readNext()) != null) {
+                lines.add(String.join(", ", nextLine));
+            }
+        } catch (CsvValidationException e) {
+            throw new IOException("Failed to parse CSV file: " + file.getName(), e);
+        }
+        return lines;
+    }
+
+    private static InputStream sharedStringsData(XSSFReader reader) {
+        try {
+            return reader.getSharedStringsData();
+        } catch (IOException | OpenXML4JException | RuntimeException e) {
+            // Workbooks without any text cells have no shared strings part
+            return null;
+        }
+    }
+
+    private static String formatNumber(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    // Thrown from the row handler (whose callbacks cannot throw SAXException) to abandon the
+    // parse once enough rows were collected. Control flow on every preview, so no stack trace
+    // is ever captured.
+    private static final class StopParsing extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        StopParsing() {
+            super("preview complete", null, false, false);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    private static final class RowCollector {
+        private final int lastRow;
+        private final Map<Integer, Map<Integer, String>> rows = new TreeMap<>();
+
+        RowCollector(int maxRows) {
+            this.lastRow = maxRows;
+        }
+
+        boolean isPastPreview(int row) {
+            return row > lastRow;
+        }
+
+        void add(int row, int column, String value) {
+            if (!isPastPreview(row) && value != null) {
+                rows.computeIfAbsent(row, r -> new TreeMap<>()).put(column, value);
+            }
+        }
+
+        List<String> lines() {
+            List<String> lines = new ArrayList<>();
+            for (Map<Integer, String> cells : rows.values()) {
+                lines.add(String.join(", ", cells.values()));
+            }
+            return lines;
+        }
+    }
+
+    private static final class XlsxRowHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final RowCollector rows;
+        private int currentRow;
+        private int column;
+
+        XlsxRowHandler(RowCollector rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            if (rows.isPastPreview(rowNum)) {
+                throw new StopParsing();
+            }
+            currentRow = rowNum;
+            column = 0;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            rows.add(currentRow, column++, formattedValue);
+        }
+    }
+
+    private static final class XlsListener extends AbortableHSSFListener {
+        private final RowCollector rows;
+        private SSTRecord sst;
+        private int worksheets;
+        private FormulaRecord pendingStringFormula;
+
+        XlsListener(RowCollector rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public short abortableProcessRecord(Record record) {
+            if (record instanceof BOFRecord bof) {
+                if (bof.getType() == BOFRecord.TYPE_WORKSHEET && ++worksheets > 1) {
+                    return 1;
+                }
+                return 0;
+            }
+            if (record instanceof SSTRecord sstRecord) {
+                sst = sstRecord;
+                return 0;
+            }
+            if (worksheets != 1) {
+                // Workbook globals or chart substreams
+                return 0;
+            }
+            if (record instanceof EOFRecord) {
+                return 1;
+            }
+            if (record instanceof StringRecord string && pendingStringFormula != null) {
+                rows.add(pendingStringFormula.getRow(), pendingStringFormula.getColumn(),
+                        string.getString());
+                pendingStringFormula = null;
+                return 0;
+            }
+            if (record instanceof CellValueRecordInterface cell) {
+                // Cells arrive in row order, so the first cell past the preview ends it
+                if (rows.isPastPreview(cell.getRow())) {
+                    return 1;
+                }
+                rows.add(cell.getRow(), cell.getColumn(), cellValue(record));
+            }
+            return 0;
+        }
+
+        private String cellValue(Record record) {
+            if (record instanceof LabelSSTRecord label) {
+                return sst != null ? sst.getString(label.getSSTIndex()).getString() : null;
+            }
+            if (record instanceof LabelRecord label) {
+                return label.getValue();
+            }
+            if (record instanceof NumberRecord number) {
+                return formatNumber(number.getValue());
+            }
+            if (record instanceof BoolErrRecord boolErr) {
+                return boolErr.isBoolean() ? Boolean.toString(boolErr.getBooleanValue()) : null;
+            }
+            if (record instanceof FormulaRecord formula) {
+                CellType type = formula.getCachedResultTypeEnum();
+                if (type == CellType.STRING) {
+                    // The cached text follows in a StringRecord
+                    pendingStringFormula = formula;
+                    return null;
+                }
+                if (type == CellType.NUMERIC) {
+                    return formatNumber(formula.getValue());
+                }
+                if (type == CellType.BOOLEAN) {
+                    return Boolean.toString(formula.getCachedBooleanValue());
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Shared strings table that parses sharedStrings.xml only as far as the highest index
+     * requested. Preview rows usually reference the first few entries, so the rest of a large
+     * table is never read.
+     */
+    private static final class LazySharedStrings implements SharedStrings, AutoCloseable {
+        private final InputStream data;
+        private final XMLStreamReader xml;
+        private final List<String> items = new ArrayList<>();
+        private boolean exhausted;
+
+        LazySharedStrings(InputStream data) throws IOException {
+            this.data = data;
+            if (data == null) {
+                this.xml = null;
+                this.exhausted = true;
+                return;
+            }
+            try {
+                this.xml = XMLHelper.newXMLInputFactory().createXMLStreamReader(data);
+            } catch (XMLStreamException e) {
+                data.close();
+                throw new IOException("Failed to read shared strings", e);
+            }
+        }
+
+        @Override
+        public RichTextString getItemAt(int idx) {
+            while (items.size() <= idx && !exhausted) {
+                readNextItem();
+            }
+            return new XSSFRichTextString(idx < items.size() ? items.get(idx) : "");
+        }
+
+        @Override
+        public int getCount() {
+            return items.size();
+        }
+
+        @Override
+        public int getUniqueCount() {
+            return items.size();
+        }
+
+        // Reads one <si> element: plain <t> text or rich-text runs, ignoring phonetic <rPh> runs
+        private void readNextItem() {
+            try {
+                StringBuilder text = null;
+                int phoneticDepth = 0;
+                while (xml.hasNext()) {
+                    int event = xml.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        String name = xml.getLocalName();
+                        if (name.equals("si")) {
+                            text = new StringBuilder();
+                        } else if (name.equals("rPh")) {
+                            phoneticDepth++;
+                        } else if (name.equals("t") && text != null && phoneticDepth == 0) {
+                            text.append(xml.getElementText());
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        String name = xml.getLocalName();
+                        if (name.equals("rPh")) {
+                            phoneticDepth--;
+                        } else if (name.equals("si") && text != null) {
+                            items.add(text.toString());
+                            return;
+                        }
+                    }
+                }
+                exhausted = true;
+            } catch (XMLStreamException e) {
+                exhausted = true;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (xml != null) {
+                    xml.close();
+                }
+            } catch (XMLStreamException e) {
+                // Nothing useful to do; the stream is closed below
+            }
+            if (data != null) {
+                data.close();
+            }
+        }
+    }
+}
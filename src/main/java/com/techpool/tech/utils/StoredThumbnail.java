@@ -0,0 +1,41 @@
+package com.techpool.tech.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A thumbnail as found in a {@link ThumbnailStore}: length bytes at offset in file, written at
+ * lastModified. Stores that keep one file per thumbnail use the whole file; packed stores point
+ * into a shared segment file, whose written regions never change.
+ */
+public record StoredThumbnail(String format, Path file, long offset, long length,
+        long lastModified) {
+
+    public static StoredThumbnail ofFile(String format, Path file) {
+        File plain = file.toFile();
+        long length = plain.length();
+        long modified = plain.lastModified();
+        // Both are 0 when the file does not exist
+        return modified == 0 ? null : new StoredThumbnail(format, file, 0, length, modified);
+    }
+
+    public boolean isWholeFile() {
+        return offset == 0 && file.toFile().length() == length;
+    }
+
+    public byte[] read() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(length));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException("Truncated thumbnail in " + file);
+                }
+            }
+        }
+        return buffer.array();
+    }
+}
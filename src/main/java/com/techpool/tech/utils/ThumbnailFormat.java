@@ -0,0 +1,23 @@
+package com.techpool.tech.utils;
+
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * An output encoding for thumbnails. Implementations are registered as beans in
+ * {@link ThumbnailFormatConfig} and selected by {@link #name()}; several formats may share an
+ * extension and media type (lossy and lossless WebP, for example).
+ */
+public interface ThumbnailFormat {
+
+    /** Name used to select this format, e.g. "jpg" or "webp-lossless". */
+    String name();
+
+    /** File extension of encoded thumbnails, without the dot. */
+    String extension();
+
+    String mediaType();
+
+    void write(BufferedImage image, ImageOutputStream out) throws IOException;
+}
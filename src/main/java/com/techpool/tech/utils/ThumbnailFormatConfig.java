@@ -0,0 +1,43 @@
+package com.techpool.tech.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ThumbnailFormatConfig {
+
+    @Value("${thumbnail.jpeg.quality:0.85}")
+    private float jpegQuality;
+
+    @Value("${thumbnail.jpeg.progressive:false}")
+    private boolean jpegProgressive;
+
+    // "420" keeps the writer's default chroma subsampling; "444" disables it
+    @Value("${thumbnail.jpeg.chroma-subsampling:420}")
+    private String jpegChromaSubsampling;
+
+    @Value("${thumbnail.webp.quality:0.8}")
+    private float webpQuality;
+
+    @Bean
+    public ThumbnailFormat jpegThumbnailFormat() {
+        return new JpegThumbnailFormat(jpegQuality, jpegProgressive,
+                "444".equals(jpegChromaSubsampling));
+    }
+
+    @Bean
+    public ThumbnailFormat pngThumbnailFormat() {
+        return new PngThumbnailFormat();
+    }
+
+    @Bean
+    public ThumbnailFormat webpThumbnailFormat() {
+        return new WebpThumbnailFormat(false, webpQuality);
+    }
+
+    @Bean
+    public ThumbnailFormat losslessWebpThumbnailFormat() {
+        return new WebpThumbnailFormat(true, webpQuality);
+    }
+}
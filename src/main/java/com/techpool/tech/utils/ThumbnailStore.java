@@ -0,0 +1,56 @@
+package com.techpool.tech.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Where encoded thumbnails live. A thumbnail is addressed by its source file, a size (the
+ * rendition suffix, empty for the primary size) and a format extension. The implementation is
+ * chosen by {@code thumbnail.store.type} in {@link ThumbnailStoreConfig}.
+ */
+public interface ThumbnailStore extends Closeable {
+
+    /** The stored thumbnail, or null when there is none. */
+    StoredThumbnail find(File source, String size, String format);
+
+    /** Stores data as the thumbnail, replacing any previous one; readers never see it partly. */
+    void write(File source, String size, String format, byte[] data) throws IOException;
+
+    /**
+     * Deletes one thumbnail of a source that no longer exists and returns whether it was there.
+     * Stores that keep thumbnails beside their sources clean up through {@link #removeOrphans}
+     * instead, because their names can be shared by several sources.
+     */
+    boolean delete(File source, String size, String format) throws IOException;
+
+    /**
+     * Deletes thumbnails in a source directory whose source is gone and returns how many. Only
+     * stores that keep thumbnails in source directories can find them this way. Files count as
+     * thumbnails only in one of the given formats and for one of the recorded sources (names of
+     * files in dir that thumbnails were generated for).
+     */
+    default int removeOrphans(File dir, Collection<String> sizes, Set<String> formats,
+            Set<String> recordedSources) {
+        return 0;
+    }
+
+    /**
+     * Where the freshness index of a source directory is kept, or null to keep it in that
+     * directory. Stores outside the source tree keep indexes under their own root, so read-only
+     * or shared source trees are never written to.
+     */
+    default Path indexFile(File sourceDir) {
+        return null;
+    }
+
+    /** Whether file was written by this store, so scans must not treat it as a source. */
+    boolean isStoreFile(File file);
+
+    @Override
+    default void close() throws IOException {
+    }
+}
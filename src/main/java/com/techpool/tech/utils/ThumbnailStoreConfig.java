@@ -0,0 +1,39 @@
+package com.techpool.tech.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+public class ThumbnailStoreConfig {
+
+    // beside-source, sharded or segment
+    @Value("${thumbnail.store.type:beside-source}")
+    private String type;
+
+    @Value("${thumbnail.store.root:thumbnail-store}")
+    private Path root;
+
+    @Value("${thumbnail.store.segment-size-mb:64}")
+    private long segmentSizeMb;
+
+    @Value("${thumbnail.store.index-capacity:65536}")
+    private int indexCapacity;
+
+    @Bean
+    public ThumbnailStore thumbnailStore() throws IOException {
+        switch (type) {
+            case "beside-source":
+                return new BesideSourceThumbnailStore();
+            case "sharded":
+                return new ShardedThumbnailStore(root);
+            case "segment":
+                return new SegmentThumbnailStore(root, segmentSizeMb * 1024 * 1024, indexCapacity);
+            default:
+                throw new IllegalArgumentException("Unknown thumbnail.store.type: " + type);
+        }
+    }
+}
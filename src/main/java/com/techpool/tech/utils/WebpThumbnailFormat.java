@@ -0,0 +1,49 @@
+package com.techpool.tech.utils;
+
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+
+/**
+ * WebP through the webp-imageio writer (bundled libwebp). Lossy mode suits photos; lossless
+ * mode replaces PNG for graphics. Only the standard ImageWriteParam API is used, so the plugin
+ * is a runtime dependency only.
+ */
+public class WebpThumbnailFormat extends ImageIoThumbnailFormat {
+    private static final String LOSSY = "Lossy";
+    private static final String LOSSLESS = "Lossless";
+
+    private final boolean lossless;
+    private final float quality;
+
+    public WebpThumbnailFormat(boolean lossless, float quality) {
+        super("webp");
+        this.lossless = lossless;
+        this.quality = quality;
+    }
+
+    @Override
+    public String name() {
+        return lossless ? "webp-lossless" : "webp";
+    }
+
+    @Override
+    public String extension() {
+        return "webp";
+    }
+
+    @Override
+    public String mediaType() {
+        return "image/webp";
+    }
+
+    @Override
+    protected ImageWriteParam writeParam(ImageWriter writer) {
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionType(lossless ? LOSSLESS : LOSSY);
+        if (!lossless) {
+            param.setCompressionQuality(quality);
+        }
+        return param;
+    }
+}
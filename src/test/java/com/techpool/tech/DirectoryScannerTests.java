@@ -0,0 +1,115 @@
+package com.techpool.tech;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DirectoryScannerTests {
+
+	@TempDir
+	Path dir;
+
+	private DirectoryScanner scanner;
+
+	@AfterEach
+	void stop() {
+		scanner.shutdown();
+	}
+
+	private Set<String> scan() {
+		Set<String> found = new TreeSet<>();
+		scanner.scan(dir, entry -> !entry.path().getFileName().toString().startsWith("thumb_"),
+				entry -> found.add(dir.relativize(entry.path()).toString()), () -> false);
+		return found;
+	}
+
+	@Test
+	void listsNestedFilesAndAppliesFilters() throws Exception {
+		// Queue smaller than the tree, so listing has to wait for the consumer
+		scanner = new DirectoryScanner(2, "", true, 2);
+		for (int i = 0; i < 5; i++) {
+			Path sub = Files.createDirectories(dir.resolve("d" + i).resolve("e"));
+			Files.writeString(sub.resolve("f.txt"), "x");
+			Files.writeString(sub.resolve("thumb_f.jpg"), "x");
+		}
+		Files.writeString(dir.resolve(".hidden"), "x");
+		Files.createDirectories(dir.resolve(".cache"));
+		Files.writeString(dir.resolve(".cache").resolve("g.txt"), "x");
+		Files.writeString(dir.resolve("a.png"), "x");
+		// Directory links are not followed, so the loop is harmless
+		Files.createSymbolicLink(dir.resolve("d0").resolve("loop"), dir);
+
+		assertEquals(Set.of("a.png", "d0/e/f.txt", "d1/e/f.txt", "d2/e/f.txt", "d3/e/f.txt",
+				"d4/e/f.txt"), scan());
+	}
+
+	@Test
+	void includeGlobMatchesFileNames() throws Exception {
+		scanner = new DirectoryScanner(1, "*.{png,jpg}", false, 16);
+		Files.writeString(Files.createDirectories(dir.resolve("sub")).resolve("b.jpg"), "x");
+		Files.writeString(dir.resolve("a.png"), "x");
+		Files.writeString(dir.resolve("c.txt"), "x");
+
+		assertEquals(Set.of("a.png", "sub/b.jpg"), scan());
+	}
+
+	@Test
+	void cancelledScanReturns() throws Exception {
+		scanner = new DirectoryScanner(1, "", true, 1);
+		for (int i = 0; i < 10; i++) {
+			Files.writeString(dir.resolve(i + ".txt"), "x");
+		}
+		AtomicInteger consumed = new AtomicInteger();
+		scanner.scan(dir, entry -> true, entry -> consumed.incrementAndGet(),
+				() -> consumed.get() >= 3);
+		assertEquals(3, consumed.get());
+	}
+
+	@Test
+	void stalledScanDoesNotStarveOthers() throws Exception {
+		// One shared listing thread and a one-entry queue
+		scanner = new DirectoryScanner(1, "", true, 1);
+		Path slow = Files.createDirectories(dir.resolve("slow"));
+		for (int i = 0; i < 10; i++) {
+			Files.writeString(slow.resolve(i + ".txt"), "x");
+		}
+		Path fast = Files.createDirectories(dir.resolve("fast"));
+		Files.writeString(fast.resolve("a.txt"), "x");
+		Files.writeString(fast.resolve("b.txt"), "x");
+
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger slowConsumed = new AtomicInteger();
+		CompletableFuture<Void> stalled = CompletableFuture.runAsync(() -> scanner.scan(slow,
+				entry -> true, entry -> {
+					try {
+						release.await();
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					slowConsumed.incrementAndGet();
+				}, () -> false));
+
+		Set<String> found = new TreeSet<>();
+		CompletableFuture.runAsync(() -> scanner.scan(fast, entry -> true,
+				entry -> found.add(entry.path().getFileName().toString()), () -> false))
+				.get(5, TimeUnit.SECONDS);
+		assertEquals(Set.of("a.txt", "b.txt"), found);
+		assertFalse(stalled.isDone());
+
+		release.countDown();
+		stalled.get(5, TimeUnit.SECONDS);
+		assertEquals(10, slowConsumed.get());
+	}
+}
@@ -0,0 +1,49 @@
+package com.techpool.tech;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class MemoryBudgetTests {
+
+	private static final long MB = 1024 * 1024;
+
+	@Test
+	void jobLargerThanTheBudgetIsRefused() {
+		MemoryBudget budget = new MemoryBudget(4);
+		assertThrows(MemoryBudget.OverBudgetException.class,
+				() -> budget.acquire(5 * MB, "huge.png"));
+		assertEquals(0, budget.reservedBytes());
+	}
+
+	@Test
+	void jobWaitsUntilItsEstimateFits() throws Exception {
+		MemoryBudget budget = new MemoryBudget(4);
+		MemoryBudget.Lease first = budget.acquire(3 * MB, "a.png");
+		assertEquals(3 * MB, budget.reservedBytes());
+		CountDownLatch admitted = new CountDownLatch(1);
+		Thread second = new Thread(() -> {
+			try {
+				MemoryBudget.Lease lease = budget.acquire(2 * MB, "b.png");
+				admitted.countDown();
+				lease.close();
+			}
+			catch (Exception e) {
+				throw new AssertionError(e);
+			}
+		});
+		second.start();
+		assertFalse(admitted.await(200, TimeUnit.MILLISECONDS));
+		first.close();
+		// A second close must not hand the permits out twice
+		first.close();
+		assertTrue(admitted.await(5, TimeUnit.SECONDS));
+		second.join();
+		assertEquals(0, budget.reservedBytes());
+	}
+}
@@ -0,0 +1,152 @@
+package com.techpool.tech;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.techpool.tech.utils.BesideSourceThumbnailStore;
+import com.techpool.tech.utils.FileFingerprint;
+import com.techpool.tech.utils.ShardedThumbnailStore;
+import com.techpool.tech.utils.ThumbnailStore;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class ThumbnailCacheTests {
+
+	@TempDir
+	Path dir;
+
+	private ThumbnailCache newCache(boolean contentHash) {
+		return newCache(contentHash, new BesideSourceThumbnailStore());
+	}
+
+	private ThumbnailCache newCache(boolean contentHash, ThumbnailStore store) {
+		ThumbnailCache cache = new ThumbnailCache(Caffeine.newBuilder().recordStats().build(),
+				Caffeine.newBuilder().build(), store);
+		ReflectionTestUtils.setField(cache, "useContentHash", contentHash);
+		return cache;
+	}
+
+	@Test
+	void recordedFileIsUpToDateUntilModified() throws Exception {
+		File file = Files.writeString(dir.resolve("a.txt"), "hello").toFile();
+		ThumbnailCache cache = newCache(false);
+
+		assertEquals(ThumbnailCache.Freshness.UNKNOWN, cache.check(file));
+		cache.record(file);
+		assertEquals(ThumbnailCache.Freshness.CURRENT, cache.check(file));
+
+		Files.writeString(file.toPath(), "hello world");
+		assertEquals(ThumbnailCache.Freshness.STALE, cache.check(file));
+		assertEquals(2, cache.stats().hits());
+		assertEquals(1, cache.stats().stale());
+	}
+
+	@Test
+	void indexSurvivesRestart() throws Exception {
+		File file = Files.writeString(dir.resolve("b.txt"), "hello").toFile();
+		newCache(false).record(file);
+
+		assertTrue(Files.exists(dir.resolve(ThumbnailCache.INDEX_FILE_NAME)));
+		assertEquals(ThumbnailCache.Freshness.CURRENT, newCache(false).check(file));
+	}
+
+	@Test
+	void fileModifiedDuringGenerationIsStale() throws Exception {
+		File file = Files.writeString(dir.resolve("f.txt"), "hello").toFile();
+		ThumbnailCache cache = newCache(true);
+		FileFingerprint readFrom = FileFingerprint.of(file);
+		// Rewritten while its thumbnail was being rendered
+		Files.writeString(file.toPath(), "hello world");
+		cache.record(file, readFrom);
+
+		assertEquals(ThumbnailCache.Freshness.STALE, cache.check(file));
+	}
+
+	@Test
+	void storeOutsideTheSourceTreeKeepsTheIndex() throws Exception {
+		Path sources = Files.createDirectory(dir.resolve("sources"));
+		File file = Files.writeString(sources.resolve("e.txt"), "hello").toFile();
+		ThumbnailStore store = new ShardedThumbnailStore(dir.resolve("store"));
+		newCache(false, store).record(file);
+
+		assertFalse(Files.exists(sources.resolve(ThumbnailCache.INDEX_FILE_NAME)));
+		assertTrue(Files.exists(store.indexFile(sources.toFile())));
+		assertEquals(ThumbnailCache.Freshness.CURRENT, newCache(false, store).check(file));
+	}
+
+	@Test
+	void invalidatedFileIsForgottenAcrossRestart() throws Exception {
+		File file = Files.writeString(dir.resolve("d.txt"), "hello").toFile();
+		ThumbnailCache cache = newCache(false);
+		cache.record(file);
+		cache.invalidate(file);
+
+		// Recreated with the same size and mtime, as a restore would
+		assertEquals(ThumbnailCache.Freshness.UNKNOWN, cache.check(file));
+		assertEquals(ThumbnailCache.Freshness.UNKNOWN, newCache(false).check(file));
+	}
+
+	@Test
+	void touchedFileWithSameContentIsUpToDateWhenHashing() throws Exception {
+		File file = Files.writeString(dir.resolve("c.txt"), "hello").toFile();
+		ThumbnailCache cache = newCache(true);
+		cache.record(file);
+
+		assertTrue(file.setLastModified(file.lastModified() + 60_000));
+		assertEquals(ThumbnailCache.Freshness.CURRENT, cache.check(file));
+	}
+
+	@Test
+	void concurrentGenerationsOfSameFileAreCoalesced() throws Exception {
+		File file = Files.writeString(dir.resolve("d.txt"), "hello").toFile();
+		ThumbnailCache cache = newCache(false);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger runs = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		try {
+			Future<GenerationOutcome> first = pool.submit(() -> cache.generateOnce(file, () -> {
+				runs.incrementAndGet();
+				started.countDown();
+				await(release);
+				return GenerationOutcome.SUCCESS;
+			}));
+			started.await();
+			Future<GenerationOutcome> second = pool.submit(() -> cache.generateOnce(file, () -> {
+				runs.incrementAndGet();
+				return GenerationOutcome.FALLBACK;
+			}));
+			while (cache.stats().coalesced() == 0) {
+				Thread.sleep(5);
+			}
+			release.countDown();
+
+			assertEquals(GenerationOutcome.SUCCESS, first.get(5, TimeUnit.SECONDS));
+			assertEquals(GenerationOutcome.SUCCESS, second.get(5, TimeUnit.SECONDS));
+			assertEquals(1, runs.get());
+			assertEquals(0, cache.stats().inFlight());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
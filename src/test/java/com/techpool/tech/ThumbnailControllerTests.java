@@ -0,0 +1,177 @@
+package com.techpool.tech;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ThumbnailControllerTests {
+
+	@TempDir
+	static Path root;
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	MeterRegistry registry;
+
+	@MockBean
+	ThumbnailJobService jobs;
+
+	@DynamicPropertySource
+	static void properties(DynamicPropertyRegistry properties) {
+		properties.add("thumbnail.allowed-base-path", () -> root.resolve("allowed").toString());
+	}
+
+	private static File image(String name) throws Exception {
+		File file = root.resolve("allowed").resolve(name).toFile();
+		file.getParentFile().mkdirs();
+		BufferedImage image = new BufferedImage(300, 200, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.ORANGE);
+		g.fillRect(0, 0, 150, 200);
+		g.dispose();
+		ImageIO.write(image, "png", file);
+		return file;
+	}
+
+	private long generations() {
+		return registry.find("thumbnail.generation").timers().stream()
+				.mapToLong(timer -> timer.count()).sum();
+	}
+
+	@Test
+	void servesThumbnailWithEtagAndAnswersRevalidation() throws Exception {
+		File source = image("a.png");
+
+		MvcResult first = mvc.perform(get("/api/thumbnail").param("path", source.getPath()))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/png"))
+				.andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+				.andReturn();
+		String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+		mvc.perform(get("/api/thumbnail").param("path", source.getPath())
+				.header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified());
+
+		// A rewritten source gets a new tag
+		image("a.png");
+		source.setLastModified(source.lastModified() + 2000);
+		MvcResult changed = mvc.perform(get("/api/thumbnail").param("path", source.getPath())
+				.header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk())
+				.andReturn();
+		assertNotEquals(etag, changed.getResponse().getHeader(HttpHeaders.ETAG));
+	}
+
+	@Test
+	void answersRangeRequestsWithPartialContent() throws Exception {
+		File source = image("b.png");
+
+		mvc.perform(get("/api/thumbnail").param("path", source.getPath())
+				.header(HttpHeaders.RANGE, "bytes=0-7"))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string(HttpHeaders.CONTENT_LENGTH, "8"));
+	}
+
+	@Test
+	void missingSourceIsNotFoundAndOutsidePathsAreForbidden() throws Exception {
+		mvc.perform(get("/api/thumbnail")
+				.param("path", root.resolve("allowed").resolve("missing.png").toString()))
+				.andExpect(status().isNotFound());
+
+		File outside = root.resolve("outside.png").toFile();
+		ImageIO.write(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB), "png", outside);
+		mvc.perform(get("/api/thumbnail").param("path", outside.getPath()))
+				.andExpect(status().isForbidden());
+		mvc.perform(get("/api/thumbnail")
+				.param("path", root.resolve("allowed").resolve("../outside.png").toString()))
+				.andExpect(status().isForbidden());
+	}
+
+	@Test
+	void concurrentMissesGenerateOnce() throws Exception {
+		File source = image("c.png");
+		long before = generations();
+
+		ExecutorService clients = Executors.newFixedThreadPool(8);
+		try {
+			List<Callable<Integer>> requests = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				requests.add(() -> mvc.perform(get("/api/thumbnail")
+						.param("path", source.getPath()))
+						.andReturn().getResponse().getStatus());
+			}
+			for (Future<Integer> response : clients.invokeAll(requests)) {
+				assertEquals(200, response.get());
+			}
+		}
+		finally {
+			clients.shutdown();
+		}
+		assertEquals(1, generations() - before);
+	}
+
+	@Test
+	void jobEndpointsAcceptTrackAndThrottleJobs() throws Exception {
+		File dir = root.resolve("allowed").toFile();
+		dir.mkdirs();
+		ThumbnailJob job = new ThumbnailJob("j1", dir.getPath());
+		when(jobs.submit(any(File.class))).thenReturn(job);
+		when(jobs.find("j1")).thenReturn(Optional.of(job));
+		when(jobs.find("gone")).thenReturn(Optional.empty());
+
+		mvc.perform(post("/api/thumbnail/jobs").param("path", dir.getPath()))
+				.andExpect(status().isAccepted())
+				.andExpect(header().string(HttpHeaders.LOCATION, "/api/thumbnail/jobs/j1"))
+				.andExpect(jsonPath("$.state").value("QUEUED"));
+		mvc.perform(get("/api/thumbnail/jobs/j1"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.fallback").value(0));
+		mvc.perform(get("/api/thumbnail/jobs/gone"))
+				.andExpect(status().isNotFound());
+
+		// A full job queue asks the client to come back later
+		when(jobs.submit(any(File.class))).thenThrow(new RejectedExecutionException("full"));
+		mvc.perform(post("/api/thumbnail/jobs").param("path", dir.getPath()))
+				.andExpect(status().isTooManyRequests());
+		mvc.perform(post("/api/thumbnail/jobs").param("path", root.toString()))
+				.andExpect(status().isForbidden());
+	}
+}
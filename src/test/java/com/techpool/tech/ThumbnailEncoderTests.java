@@ -0,0 +1,48 @@
+package com.techpool.tech;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import com.techpool.tech.utils.JpegThumbnailFormat;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import org.junit.jupiter.api.Test;
+
+class ThumbnailEncoderTests {
+
+	@Test
+	void encodesImagesWithAlphaAsJpeg() throws Exception {
+		ThumbnailEncoder encoder = new ThumbnailEncoder(List.of(new JpegThumbnailFormat(0.85f, false, false)));
+
+		byte[] jpeg = encoder.encode(new BufferedImage(40, 30, BufferedImage.TYPE_INT_ARGB), "jpeg");
+
+		assertEquals(40, ImageIO.read(new ByteArrayInputStream(jpeg)).getWidth());
+	}
+
+	@Test
+	void fullChromaDisablesSubsampling() throws Exception {
+		ThumbnailEncoder encoder = new ThumbnailEncoder(List.of(new JpegThumbnailFormat(0.9f, true, true)));
+
+		byte[] jpeg = encoder.encode(new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB), "jpg");
+
+		try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(jpeg))) {
+			ImageReader reader = ImageIO.getImageReaders(in).next();
+			reader.setInput(in);
+			IIOMetadataNode tree = (IIOMetadataNode) reader.getImageMetadata(0)
+					.getAsTree("javax_imageio_jpeg_image_1.0");
+			IIOMetadataNode luma = (IIOMetadataNode) tree.getElementsByTagName("componentSpec")
+					.item(0);
+			assertNotNull(luma);
+			assertEquals("1", luma.getAttribute("HsamplingFactor"));
+			// SOF2 marks a progressive JPEG
+			assertEquals("2", ((IIOMetadataNode) tree.getElementsByTagName("sof").item(0))
+					.getAttribute("process"));
+			reader.dispose();
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package com.techpool.tech;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ThumbnailJobServiceTests {
+
+	private final ThumbnailService service = mock(ThumbnailService.class);
+	private final CountDownLatch release = new CountDownLatch(1);
+	private ThumbnailJobService jobs;
+
+	// Each run reports one file per outcome, then waits until the test releases it
+	private ThumbnailJobService start(int maxConcurrent, int queueCapacity, int maxRetained) {
+		doAnswer(invocation -> {
+			File path = invocation.getArgument(0);
+			ProcessingListener listener = invocation.getArgument(1);
+			for (GenerationOutcome outcome : GenerationOutcome.values()) {
+				File file = new File(path, outcome.name());
+				listener.onDiscovered(file);
+				listener.onCompleted(file, outcome);
+			}
+			release.await(5, TimeUnit.SECONDS);
+			return null;
+		}).when(service).processPath(any(File.class), any(ProcessingListener.class));
+		jobs = new ThumbnailJobService(service, maxConcurrent, queueCapacity, maxRetained);
+		return jobs;
+	}
+
+	private static ThumbnailJob.Status await(ThumbnailJob job) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!job.isFinished() && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		return job.snapshot();
+	}
+
+	@AfterEach
+	void stop() {
+		release.countDown();
+		if (jobs != null) {
+			jobs.shutdown();
+		}
+	}
+
+	@Test
+	void jobReportsProgressAndCountsFallbacksSeparately() throws Exception {
+		ThumbnailJob job = start(1, 1, 10).submit(new File("docs"));
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (job.snapshot().discovered() < 4 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(ThumbnailJob.State.RUNNING, job.getState());
+
+		release.countDown();
+		ThumbnailJob.Status status = await(job);
+		assertEquals(ThumbnailJob.State.COMPLETED, status.state());
+		assertEquals(4, status.discovered());
+		assertEquals(1, status.done());
+		assertEquals(1, status.fallback());
+		assertEquals(1, status.failed());
+		assertEquals(1, status.skipped());
+		assertTrue(jobs.find(job.getId()).isPresent());
+	}
+
+	@Test
+	void fullQueueRejectsNewJobs() {
+		start(1, 1, 10);
+		ThumbnailJob running = jobs.submit(new File("a"));
+		ThumbnailJob queued = jobs.submit(new File("b"));
+
+		assertThrows(RejectedExecutionException.class, () -> jobs.submit(new File("c")));
+		assertTrue(jobs.find(running.getId()).isPresent());
+		assertTrue(jobs.find(queued.getId()).isPresent());
+
+		// A queued job is dropped as soon as it is cancelled
+		jobs.cancel(queued.getId());
+		assertEquals(ThumbnailJob.State.CANCELLED, queued.getState());
+	}
+
+	@Test
+	void cancelledRunningJobStaysRunningUntilItsWorkersStop() throws Exception {
+		ThumbnailJob job = start(1, 1, 10).submit(new File("docs"));
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (job.snapshot().discovered() < 4 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+
+		jobs.cancel(job.getId());
+		assertTrue(job.isCancelled());
+		Thread.sleep(100);
+		assertEquals(ThumbnailJob.State.RUNNING, job.getState());
+
+		release.countDown();
+		assertEquals(ThumbnailJob.State.CANCELLED, await(job).state());
+	}
+
+	@Test
+	void oldestFinishedJobsAreEvictedBeyondTheRetentionLimit() throws Exception {
+		release.countDown();
+		start(1, 4, 2);
+		ThumbnailJob first = jobs.submit(new File("a"));
+		await(first);
+		ThumbnailJob second = jobs.submit(new File("b"));
+		await(second);
+		ThumbnailJob third = jobs.submit(new File("c"));
+
+		assertFalse(jobs.find(first.getId()).isPresent());
+		assertTrue(jobs.find(second.getId()).isPresent());
+		assertTrue(jobs.find(third.getId()).isPresent());
+	}
+}
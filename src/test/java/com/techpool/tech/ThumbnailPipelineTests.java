@@ -0,0 +1,87 @@
+package com.techpool.tech;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.techpool.tech.utils.BesideSourceThumbnailStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class ThumbnailPipelineTests {
+
+	@Autowired
+	ThumbnailPipeline pipeline;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void filesFlowThroughAllStagesAndAreSkippedOnceCurrent() throws Exception {
+		List<File> files = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			File file = dir.resolve("img" + i + ".png").toFile();
+			ImageIO.write(new BufferedImage(300 + i, 200, BufferedImage.TYPE_INT_RGB), "png", file);
+			files.add(file);
+		}
+		files.add(Files.writeString(dir.resolve("notes.txt"), "hello").toFile());
+
+		for (GenerationOutcome outcome : submitAll(files)) {
+			assertEquals(GenerationOutcome.SUCCESS, outcome);
+		}
+		assertTrue(Files.exists(dir.resolve("thumb_img0.png")));
+		assertTrue(Files.exists(dir.resolve("thumb_notes.jpg")));
+
+		for (GenerationOutcome outcome : submitAll(files)) {
+			assertEquals(GenerationOutcome.SKIPPED, outcome);
+		}
+	}
+
+	@Test
+	void shutdownSkipsFilesStillQueued() throws Exception {
+		ThumbnailCache cache = new ThumbnailCache(Caffeine.newBuilder().build(),
+				Caffeine.newBuilder().build(), new BesideSourceThumbnailStore());
+		// Never started, so everything submitted stays queued
+		ThumbnailPipeline idle = new ThumbnailPipeline(mock(ThumbnailService.class), cache,
+				new SimpleMeterRegistry(), 8, 1, 1, 1, 1, 1, 1);
+		File file = dir.resolve("a.png").toFile();
+		CompletableFuture<GenerationOutcome> queued = idle.submit(file);
+		assertFalse(queued.isDone());
+
+		idle.shutdown();
+		assertEquals(GenerationOutcome.SKIPPED, queued.get(5, TimeUnit.SECONDS));
+		assertEquals(GenerationOutcome.SKIPPED,
+				idle.submit(dir.resolve("b.png").toFile()).get(5, TimeUnit.SECONDS));
+		// The single-flight entry is gone, so the file can be generated again
+		assertEquals(GenerationOutcome.SUCCESS, cache.generateOnceAsync(file,
+				() -> CompletableFuture.completedFuture(GenerationOutcome.SUCCESS))
+				.get(5, TimeUnit.SECONDS));
+	}
+
+	private List<GenerationOutcome> submitAll(List<File> files) throws Exception {
+		List<CompletableFuture<GenerationOutcome>> futures = new ArrayList<>();
+		for (File file : files) {
+			futures.add(pipeline.submit(file));
+		}
+		List<GenerationOutcome> outcomes = new ArrayList<>();
+		for (CompletableFuture<GenerationOutcome> future : futures) {
+			outcomes.add(future.get(30, TimeUnit.SECONDS));
+		}
+		return outcomes;
+	}
+}
@@ -0,0 +1,66 @@
+package com.techpool.tech;
+
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ThumbnailWatcherTests {
+
+	@TempDir
+	Path dir;
+
+	private final ThumbnailService service = mock(ThumbnailService.class);
+	private final ThumbnailExecutors executors = new ThumbnailExecutors(1, 8, 1, 8, 1, 8, false, 0);
+	private ThumbnailWatcher watcher;
+
+	private ThumbnailWatcher start() throws Exception {
+		watcher = new ThumbnailWatcher(service, executors, dir.toString(), 300, 0, 100);
+		watcher.start();
+		return watcher;
+	}
+
+	@AfterEach
+	void stop() {
+		if (watcher != null) {
+			watcher.shutdown();
+		}
+		executors.shutdown();
+	}
+
+	@Test
+	void settledFilesInNewDirectoriesAreProcessedOnce() throws Exception {
+		start();
+		Path sub = Files.createDirectories(dir.resolve("uploads"));
+		File file = Files.writeString(sub.resolve("a.txt"), "hello").toFile();
+
+		verify(service, timeout(5000)).processPath(file);
+		// Nothing is picked up before the debounce period has passed
+		File late = Files.writeString(sub.resolve("b.txt"), "hello").toFile();
+		Thread.sleep(100);
+		verify(service, never()).processPath(late);
+		verify(service, timeout(5000)).processPath(late);
+	}
+
+	@Test
+	void deletingASourceRemovesItsOrphanedThumbnails() throws Exception {
+		File file = Files.writeString(dir.resolve("c.txt"), "hello").toFile();
+		start();
+		// Let the startup reconciliation, which also removes orphans, finish first
+		verify(service, timeout(5000)).processPath(dir.toFile());
+		clearInvocations(service);
+
+		Files.delete(file.toPath());
+
+		verify(service, timeout(5000)).removeOrphanedThumbnails(dir.toFile());
+		verify(service, never()).processPath(file);
+	}
+}
@@ -0,0 +1,114 @@
+package com.techpool.tech;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+// Uses shell scripts standing in for ffmpeg
+@DisabledOnOs(OS.WINDOWS)
+class VideoFrameExtractorTests {
+
+	@TempDir
+	Path dir;
+
+	private VideoFrameExtractor extractor;
+
+	@AfterEach
+	void shutdown() {
+		if (extractor != null) {
+			extractor.shutdown();
+		}
+	}
+
+	private String stub(String body) throws IOException {
+		Path script = dir.resolve("ffmpeg");
+		Files.writeString(script, "#!/bin/sh\n" + body + "\n");
+		assertTrue(script.toFile().setExecutable(true));
+		return script.toString();
+	}
+
+	@Test
+	void readsFrameFromStdout() throws Exception {
+		File frame = dir.resolve("frame.png").toFile();
+		ImageIO.write(new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB), "png", frame);
+		extractor = new VideoFrameExtractor(stub("cat " + frame.getAbsolutePath()), 5, 2,
+				"00:00:01.000");
+
+		BufferedImage image = extractor.extractFrame(dir.resolve("clip.mp4").toFile(), 400, 600);
+
+		assertEquals(40, image.getWidth());
+		assertEquals(0, extractor.activeCount());
+	}
+
+	@Test
+	void samplesFramesAcrossDuration() throws Exception {
+		File frame = dir.resolve("frame.png").toFile();
+		ImageIO.write(new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB), "png", frame);
+		Path calls = dir.resolve("calls.log");
+		// The probe call has no output target; frame calls end with "-"
+		extractor = new VideoFrameExtractor(stub("echo \"$@\" >> " + calls + "\n"
+				+ "case \"$*\" in *' -') cat " + frame.getAbsolutePath() + " ;;\n"
+				+ "*) echo '  Duration: 00:00:10.00, start: 0.000000' >&2; exit 1 ;; esac"), 5, 2,
+				"00:00:01.000");
+
+		List<BufferedImage> frames = extractor.sampleFrames(dir.resolve("clip.mp4").toFile(), 4,
+				10_000, 400, 600);
+
+		assertEquals(4, frames.size());
+		String log = Files.readString(calls);
+		assertTrue(log.contains("-ss 2.000") && log.contains("-ss 8.000"), log);
+		assertTrue(log.contains("-skip_frame nokey"), log);
+	}
+
+	@Test
+	void findsDurationAheadOfLongStreamDetails() throws Exception {
+		File frame = dir.resolve("frame.png").toFile();
+		ImageIO.write(new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB), "png", frame);
+		// Many audio and subtitle tracks: well over 2 KB of stream lines after the duration
+		extractor = new VideoFrameExtractor(stub("case \"$*\" in *' -') cat "
+				+ frame.getAbsolutePath() + " ;;\n"
+				+ "*) echo '  Duration: 00:00:10.00, start: 0.000000' >&2\n"
+				+ "i=0; while [ $i -lt 100 ]; do echo \"    Stream #0:$i(eng): Audio: aac (LC),"
+				+ " 48000 Hz, stereo, fltp, 128 kb/s (default)\" >&2; i=$((i+1)); done\n"
+				+ "exit 1 ;; esac"), 5, 2, "00:00:01.000");
+
+		List<BufferedImage> frames = extractor.sampleFrames(dir.resolve("clip.mp4").toFile(), 3,
+				10_000, 400, 600);
+
+		assertEquals(3, frames.size());
+	}
+
+	@Test
+	void reportsStderrOnFailure() throws Exception {
+		extractor = new VideoFrameExtractor(stub("echo 'moov atom not found' >&2; exit 1"), 5, 2,
+				"00:00:01.000");
+
+		IOException e = assertThrows(IOException.class,
+				() -> extractor.extractFrame(dir.resolve("clip.mp4").toFile(), 400, 600));
+		assertTrue(e.getMessage().contains("moov atom not found"), e.getMessage());
+	}
+
+	@Test
+	void killsHungProcessAfterTimeout() throws Exception {
+		extractor = new VideoFrameExtractor(stub("exec sleep 30"), 1, 2, "00:00:01.000");
+
+		long start = System.nanoTime();
+		IOException e = assertThrows(IOException.class,
+				() -> extractor.extractFrame(dir.resolve("clip.mp4").toFile(), 400, 600));
+		assertTrue(e.getMessage().contains("timed out"), e.getMessage());
+		assertTrue(System.nanoTime() - start < 10_000_000_000L);
+	}
+}
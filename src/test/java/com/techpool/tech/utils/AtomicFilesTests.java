@@ -0,0 +1,77 @@
+package com.techpool.tech.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AtomicFilesTests {
+
+	@TempDir
+	Path dir;
+
+	private static byte[] filled(char c, int length) {
+		byte[] data = new byte[length];
+		Arrays.fill(data, (byte) c);
+		return data;
+	}
+
+	@Test
+	void replacesExistingFileWithoutLeavingTempFiles() throws Exception {
+		Path target = dir.resolve("thumb_photo.jpg");
+		Files.writeString(target, "stale");
+
+		AtomicFiles.write(filled('a', 100), target);
+		AtomicFiles.write(filled('b', 200), target);
+
+		assertEquals(200, Files.size(target));
+		try (Stream<Path> files = Files.list(dir)) {
+			assertEquals(1, files.count());
+		}
+	}
+
+	@Test
+	void readersSeeOnlyWholeVersions() throws Exception {
+		Path target = dir.resolve("thumb_photo.jpg");
+		int length = 256 * 1024;
+		AtomicFiles.write(filled('a', length), target);
+
+		ExecutorService writer = Executors.newSingleThreadExecutor();
+		try {
+			Future<?> writes = writer.submit(() -> {
+				for (int i = 0; i < 200; i++) {
+					AtomicFiles.write(filled(i % 2 == 0 ? 'b' : 'a', length), target);
+				}
+				return null;
+			});
+			int reads = 0;
+			while (!writes.isDone() || reads == 0) {
+				byte[] read;
+				try {
+					read = Files.readAllBytes(target);
+				}
+				catch (NoSuchFileException e) {
+					throw new AssertionError("Target missing between versions", e);
+				}
+				assertEquals(length, read.length);
+				byte first = read[0];
+				for (byte b : read) {
+					assertEquals(first, b);
+				}
+				reads++;
+			}
+			writes.get();
+		}
+		finally {
+			writer.shutdown();
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package com.techpool.tech.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class FileTypeUtilTests {
+
+	private static final byte[] PNG_HEADER = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n',
+			0, 0, 0, 13, 'I', 'H', 'D', 'R'};
+
+	@Test
+	void matchingExtensionAndMagicUseFastPath() {
+		assertEquals("image/png", FileTypeUtil.detectMimeType("a.png", PNG_HEADER));
+		assertEquals("application/pdf", FileTypeUtil.detectMimeType("a.pdf",
+				"%PDF-1.7\n".getBytes(StandardCharsets.US_ASCII)));
+		assertEquals("application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+				FileTypeUtil.detectMimeType("a.docx", new byte[] {'P', 'K', 3, 4, 20, 0}));
+	}
+
+	@Test
+	void mismatchedExtensionFallsBackToContentDetection() {
+		assertEquals("image/png", FileTypeUtil.detectMimeType("renamed.jpg", PNG_HEADER));
+		assertEquals("text/csv", FileTypeUtil.detectMimeType("data.csv",
+				"a,b\n1,2\n".getBytes(StandardCharsets.US_ASCII)));
+	}
+}
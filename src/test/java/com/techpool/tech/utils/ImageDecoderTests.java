@@ -0,0 +1,107 @@
+package com.techpool.tech.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ImageDecoderTests {
+
+	@TempDir
+	Path dir;
+
+	private static BufferedImage filled(int width, int height, Color color) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.setColor(color);
+		g.fillRect(0, 0, width, height);
+		g.dispose();
+		return image;
+	}
+
+	private static byte[] jpeg(BufferedImage image, BufferedImage thumbnail) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+		try (ImageOutputStream out = ImageIO.createImageOutputStream(bytes)) {
+			writer.setOutput(out);
+			writer.write(new IIOImage(image, thumbnail == null ? null : List.of(thumbnail), null));
+		}
+		finally {
+			writer.dispose();
+		}
+		return bytes.toByteArray();
+	}
+
+	// APP1 Exif segment holding a big-endian TIFF directory with just the orientation tag
+	private static byte[] exifOrientation(int orientation) {
+		ByteBuffer tiff = ByteBuffer.allocate(26);
+		tiff.put(new byte[] {'M', 'M', 0, 42}).putInt(8);
+		tiff.putShort((short) 1);
+		tiff.putShort((short) 0x0112).putShort((short) 3).putInt(1)
+				.putShort((short) orientation).putShort((short) 0);
+		tiff.putInt(0);
+		byte[] identifier = {'E', 'x', 'i', 'f', 0, 0};
+		ByteBuffer segment = ByteBuffer.allocate(4 + identifier.length + tiff.capacity());
+		segment.put((byte) 0xFF).put((byte) 0xE1)
+				.putShort((short) (2 + identifier.length + tiff.capacity()));
+		segment.put(identifier).put(tiff.array());
+		return segment.array();
+	}
+
+	@Test
+	void appliesExifOrientation() throws Exception {
+		byte[] plain = jpeg(filled(60, 40, Color.RED), null);
+		// Insert after SOI and the JFIF APP0 segment
+		int app0End = 4 + ((plain[4] & 0xFF) << 8 | (plain[5] & 0xFF));
+		byte[] exif = exifOrientation(6);
+		ByteBuffer rotated = ByteBuffer.allocate(plain.length + exif.length);
+		rotated.put(plain, 0, app0End).put(exif).put(plain, app0End, plain.length - app0End);
+		File file = Files.write(dir.resolve("rotated.jpg"), rotated.array()).toFile();
+
+		BufferedImage image = ImageDecoder.decode(file, 400, 600, "image/jpeg");
+
+		// Rotated 90 degrees clockwise: width and height swap
+		assertEquals(40, image.getWidth());
+		assertEquals(60, image.getHeight());
+	}
+
+	@Test
+	void subsamplesLargeImagesToCoverTheTarget() throws Exception {
+		File file = dir.resolve("large.png").toFile();
+		ImageIO.write(filled(2000, 1600, Color.BLUE), "png", file);
+
+		BufferedImage image = ImageDecoder.decode(file, 400, 600, "image/png");
+
+		// Scale 0.2 needs 400x320; subsampling by 5 gives exactly that
+		assertEquals(400, image.getWidth());
+		assertEquals(320, image.getHeight());
+		assertEquals(400L * 320 * 4 * 2 + 2000L * 4 * 8,
+				ImageDecoder.estimateDecodeBytes(file, 400, 600, "image/png"));
+	}
+
+	@Test
+	void usesEmbeddedThumbnailThatCoversTheTarget() throws Exception {
+		File file = Files.write(dir.resolve("camera.jpg"),
+				jpeg(filled(1600, 1200, Color.RED), filled(160, 120, Color.BLUE))).toFile();
+
+		BufferedImage image = ImageDecoder.decode(file, 100, 100, "image/jpeg");
+
+		assertEquals(160, image.getWidth());
+		Color center = new Color(image.getRGB(80, 60));
+		assertEquals(0, center.getRed(), 40);
+		assertEquals(255, center.getBlue(), 40);
+	}
+}
@@ -0,0 +1,35 @@
+package com.techpool.tech.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.image.BufferedImage;
+import org.junit.jupiter.api.Test;
+
+class RasterPoolTests {
+
+	@Test
+	void releasedCanvasIsReused() {
+		RasterPool pool = new RasterPool(40, 60, 2);
+		BufferedImage first = pool.acquire();
+		pool.release(first);
+		assertSame(first, pool.acquire());
+		assertEquals(1, pool.allocatedCount());
+	}
+
+	@Test
+	void foreignImagesAndOverflowAreDropped() {
+		RasterPool pool = new RasterPool(40, 60, 1);
+		pool.release(new BufferedImage(40, 60, BufferedImage.TYPE_INT_ARGB));
+		pool.release(new BufferedImage(20, 30, BufferedImage.TYPE_INT_RGB));
+		assertEquals(0, pool.idleCount());
+		BufferedImage a = pool.acquire();
+		BufferedImage b = pool.acquire();
+		pool.release(a);
+		pool.release(b);
+		assertEquals(1, pool.idleCount());
+		assertSame(a, pool.acquire());
+		assertNotSame(a, pool.acquire());
+	}
+}
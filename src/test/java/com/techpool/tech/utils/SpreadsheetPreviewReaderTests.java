@@ -0,0 +1,67 @@
+package com.techpool.tech.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SpreadsheetPreviewReaderTests {
+
+	@TempDir
+	Path dir;
+
+	private File write(Workbook workbook, String name) throws Exception {
+		Sheet sheet = workbook.createSheet("data");
+		Row header = sheet.createRow(0);
+		header.createCell(0).setCellValue("name");
+		header.createCell(1).setCellValue("count");
+		for (int i = 1; i <= 500; i++) {
+			Row row = sheet.createRow(i);
+			row.createCell(0).setCellValue("item" + i);
+			row.createCell(1).setCellValue(i);
+		}
+		workbook.createSheet("other").createRow(0).createCell(0).setCellValue("ignored");
+		File file = dir.resolve(name).toFile();
+		try (OutputStream out = Files.newOutputStream(file.toPath())) {
+			workbook.write(out);
+		}
+		workbook.close();
+		return file;
+	}
+
+	@Test
+	void xlsxPreviewStopsAfterRequestedRows() throws Exception {
+		File file = write(new XSSFWorkbook(), "data.xlsx");
+
+		List<String> lines = SpreadsheetPreviewReader.readXlsx(file, 3);
+
+		assertEquals(List.of("name, count", "item1, 1", "item2, 2", "item3, 3"), lines);
+	}
+
+	@Test
+	void xlsPreviewStopsAfterRequestedRows() throws Exception {
+		File file = write(new HSSFWorkbook(), "data.xls");
+
+		List<String> lines = SpreadsheetPreviewReader.readXls(file, 3);
+
+		assertEquals(List.of("name, count", "item1, 1", "item2, 2", "item3, 3"), lines);
+	}
+
+	@Test
+	void csvPreviewReadsOnlyRequestedLines() throws Exception {
+		Path csv = Files.writeString(dir.resolve("data.csv"), "a,b\n1,2\n3,4\n\"unterminated\n");
+
+		assertEquals(List.of("a, b", "1, 2", "3, 4"),
+				SpreadsheetPreviewReader.readCsv(csv.toFile(), 3));
+	}
+}
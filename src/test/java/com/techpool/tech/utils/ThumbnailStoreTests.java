@@ -0,0 +1,101 @@
+package com.techpool.tech.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ThumbnailStoreTests {
+
+	@TempDir
+	Path dir;
+
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	void shardedStoreKeepsSourcesApart() throws Exception {
+		ThumbnailStore store = new ShardedThumbnailStore(dir.resolve("store"));
+		// Same thumbnail name in the beside-source layout
+		File first = dir.resolve("a b.png").toFile();
+		File second = dir.resolve("a_b.jpg").toFile();
+		store.write(first, "", "jpg", bytes("first"));
+		store.write(second, "", "jpg", bytes("second"));
+
+		StoredThumbnail stored = store.find(first, "", "jpg");
+		assertArrayEquals(bytes("first"), stored.read());
+		assertTrue(stored.isWholeFile());
+		assertTrue(store.isStoreFile(stored.file().toFile()));
+		String hash = ShardedThumbnailStore.hash(first);
+		assertEquals(dir.resolve("store").resolve(hash.substring(0, 2))
+				.resolve(hash.substring(2, 4)).resolve(hash + ".jpg"), stored.file());
+		assertArrayEquals(bytes("second"), store.find(second, "", "jpg").read());
+
+		assertTrue(store.delete(first, "", "jpg"));
+		assertNull(store.find(first, "", "jpg"));
+	}
+
+	@Test
+	void segmentStorePacksThumbnailsAndSurvivesReopening() throws Exception {
+		Path root = dir.resolve("segments");
+		File source = dir.resolve("photo.jpg").toFile();
+		SegmentThumbnailStore store = new SegmentThumbnailStore(root, 256, 16);
+		for (int i = 0; i < 100; i++) {
+			store.write(dir.resolve(i + ".png").toFile(), "_grid", "png", bytes("thumb " + i));
+		}
+		store.write(source, "", "jpg", bytes("old"));
+		store.write(source, "", "jpg", bytes("new"));
+		assertTrue(store.delete(dir.resolve("7.png").toFile(), "_grid", "png"));
+		// 101 live keys at 70% load
+		assertEquals(256, store.capacity());
+		store.close();
+
+		SegmentThumbnailStore reopened = new SegmentThumbnailStore(root, 256, 16);
+		StoredThumbnail stored = reopened.find(source, "", "jpg");
+		assertArrayEquals(bytes("new"), stored.read());
+		assertFalse(stored.isWholeFile());
+		assertArrayEquals(bytes("thumb 42"),
+				reopened.find(dir.resolve("42.png").toFile(), "_grid", "png").read());
+		assertNull(reopened.find(dir.resolve("7.png").toFile(), "_grid", "png"));
+		assertNull(reopened.find(source, "_grid", "jpg"));
+		// Small segments roll over instead of growing one file
+		try (var segments = Files.list(root)) {
+			assertTrue(segments.filter(p -> p.getFileName().toString().startsWith("segment-"))
+					.count() > 1);
+		}
+		reopened.close();
+	}
+
+	@Test
+	void besideSourceStoreRemovesOnlyOrphans() throws Exception {
+		ThumbnailStore store = new BesideSourceThumbnailStore();
+		File kept = Files.writeString(dir.resolve("kept.png"), "x").toFile();
+		File gone = dir.resolve("gone.png").toFile();
+		store.write(kept, "", "png", bytes("k"));
+		store.write(gone, "", "png", bytes("g"));
+		store.write(gone, "_storyboard", "jpg", bytes("g"));
+		// User files that only share the prefix: another extension, or no recorded source
+		Files.writeString(dir.resolve("thumb_notes.txt"), "n");
+		Files.writeString(dir.resolve("thumb_up.svg"), "<svg/>");
+		Files.writeString(dir.resolve("thumb_drive.png"), "d");
+
+		assertEquals(2, store.removeOrphans(dir.toFile(), List.of("", "_storyboard"),
+				Set.of("jpg", "png", "webp"), Set.of("kept.png", "gone.png")));
+		assertTrue(Files.exists(dir.resolve("thumb_kept.png")));
+		assertNull(store.find(gone, "", "png"));
+		assertTrue(Files.exists(dir.resolve("thumb_notes.txt")));
+		assertTrue(Files.exists(dir.resolve("thumb_up.svg")));
+		assertTrue(Files.exists(dir.resolve("thumb_drive.png")));
+	}
+}